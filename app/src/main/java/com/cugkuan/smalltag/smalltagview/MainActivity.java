@@ -1,7 +1,9 @@
 package com.cugkuan.smalltag.smalltagview;
 
+import android.content.Intent;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.view.View;
 import android.widget.ListView;
 import android.widget.TextView;
 
@@ -43,5 +45,12 @@ public class MainActivity extends AppCompatActivity {
 
         listView.setAdapter(adapter);
 
+        findViewById(R.id.recyclerViewButton).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                startActivity(new Intent(MainActivity.this, RecyclerViewActivity.class));
+            }
+        });
+
     }
 }
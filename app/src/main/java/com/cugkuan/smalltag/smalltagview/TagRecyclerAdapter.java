@@ -0,0 +1,106 @@
+package com.cugkuan.smalltag.smalltagview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.cugkuan.smalltag.SmallTagPrefetcher;
+import com.cugkuan.smalltag.SmallTagView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 与 {@link ItemAdapter} 相同的数据，滚动时通过 {@link SmallTagPrefetcher}
+ * 在两帧之间预先计算后面几个Item的Tags
+ */
+public class TagRecyclerAdapter extends RecyclerView.Adapter<TagRecyclerAdapter.ViewHolder> {
+
+    /**
+     * 预先计算最后一个可见Item之后的个数
+     */
+    private static final int PREFETCH_AHEAD = 6;
+
+    private final List<List<String>> data = new ArrayList<>();
+
+    private final SmallTagPrefetcher prefetcher = new SmallTagPrefetcher();
+
+    private int lastPrefetched = -1;
+
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (recyclerView.getChildCount() == 0
+                    || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+                return;
+            }
+            //列表中Item的宽度相同，以任意一个已经显示的Item作为参照
+            ViewHolder holder = (ViewHolder) recyclerView.getChildViewHolder(recyclerView.getChildAt(0));
+            prefetcher.setTarget(holder.tagView);
+
+            LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+            int last = layoutManager.findLastVisibleItemPosition();
+            int end = Math.min(last + PREFETCH_AHEAD, getItemCount() - 1);
+            for (int i = Math.max(last + 1, lastPrefetched + 1); i <= end; i++) {
+                prefetcher.prefetch(data.get(i));
+            }
+            lastPrefetched = Math.max(lastPrefetched, end);
+        }
+    };
+
+    public TagRecyclerAdapter() {
+        List<String> tags = Arrays.asList("数学", "这是一个很长很长很长很长很长很长很长的Tag",
+                "语文", "化学", "生物", "化学", "历史");
+        List<String> tags2 = Arrays.asList("历史", "生物", "语文");
+        List<String> tags3 = Arrays.asList("化学", "物理", "音乐");
+        for (int i = 0; i < 100; i++) {
+            //每个Item不同，才能看出预先计算的效果
+            List<String> item = new ArrayList<>(i % 3 == 0 ? tags : i % 3 == 1 ? tags2 : tags3);
+            item.add("第" + i + "个");
+            data.add(item);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(scrollListener);
+        prefetcher.cancel();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.list_item, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.tagView.setTags(data.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return data.size();
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+
+        SmallTagView tagView;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            tagView = itemView.findViewById(R.id.tag);
+        }
+    }
+}
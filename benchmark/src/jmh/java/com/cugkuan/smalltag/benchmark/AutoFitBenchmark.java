@@ -0,0 +1,72 @@
+package com.cugkuan.smalltag.benchmark;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * 自动缩小文字大小使Tags排列在maxLines行内。
+ * <p>
+ * naive 每个候选的文字大小都重新测量所有的Tag,从原始大小逐个减小；
+ * layoutToFit 每个Tag只测量一次，按比例换算宽度后二分查找，只计算换行。
+ */
+@State(Scope.Thread)
+public class AutoFitBenchmark {
+
+    private static final int WIDTH = 1080;
+
+    private static final int TEXT_SIZE = 33;
+
+    private static final int MIN_TEXT_SIZE = 12;
+
+    private static final int PADDING = 24;
+
+    @Param({"10", "50", "200"})
+    public int tagCount;
+
+    @Param({TagData.LATIN, TagData.CJK})
+    public String script;
+
+    @Param({"1", "3"})
+    public int maxLines;
+
+    private List<String> mTags;
+
+    @Setup
+    public void setUp() {
+        mTags = TagData.tags(script, tagCount, 1);
+    }
+
+    private TagLayout newLayout(int textSize) {
+        TagLayout layout = new TagLayout(new StubMeasurer(textSize, PADDING));
+        layout.setPadding(15, 15, 0, 15);
+        layout.setDivider(6, 6);
+        layout.setTagHeight(50);
+        layout.setMaxLines(maxLines);
+        layout.setTags(mTags);
+        return layout;
+    }
+
+    @Benchmark
+    public int naive() {
+        for (int size = TEXT_SIZE; size > MIN_TEXT_SIZE; size--) {
+            TagLayout layout = newLayout(size);
+            layout.layout(WIDTH);
+            if (layout.getVisibleTagCount() == mTags.size()) {
+                return size;
+            }
+        }
+        return MIN_TEXT_SIZE;
+    }
+
+    @Benchmark
+    public int layoutToFit() {
+        return newLayout(TEXT_SIZE).layoutToFit(WIDTH, TEXT_SIZE, MIN_TEXT_SIZE, PADDING);
+    }
+}
@@ -0,0 +1,109 @@
+package com.cugkuan.smalltag.benchmark;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 逐个Tag交替绘制背景和文字，与先一次绘制所有背景(Path)再绘制所有文字的对比。
+ * <p>
+ * Canvas的调用用 {@link Blackhole} 代替，每一帧的Canvas调用次数和Paint切换次数通过
+ * {@link FrameOps} 输出。
+ */
+@State(Scope.Thread)
+public class DrawPassBenchmark {
+
+    private static final int WIDTH = 1080;
+
+    @Param({"10", "50", "200"})
+    public int tagCount;
+
+    private TagLayout mLayout;
+
+    /**
+     * 代替缓存的背景Path,排列结果不变时不重新生成
+     */
+    private float[] mBackgroundPath;
+
+    /**
+     * 每一帧的Canvas调用次数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FrameOps {
+
+        public int canvasCalls;
+
+        public int paintSwitches;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            canvasCalls = 0;
+            paintSwitches = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        mLayout = new TagLayout(new StubMeasurer(33, 24));
+        mLayout.setPadding(15, 15, 0, 15);
+        mLayout.setDivider(6, 6);
+        mLayout.setTagHeight(50);
+        mLayout.setTags(TagData.tags(TagData.LATIN, tagCount, 1));
+        mLayout.layout(WIDTH);
+
+        int count = mLayout.getVisibleTagCount();
+        mBackgroundPath = new float[count * 4];
+        for (int i = 0; i < count; i++) {
+            float x = mLayout.getX(i);
+            float y = mLayout.getY(i);
+            mBackgroundPath[i * 4] = x;
+            mBackgroundPath[i * 4 + 1] = y;
+            mBackgroundPath[i * 4 + 2] = x + mLayout.getTagWidth(i);
+            mBackgroundPath[i * 4 + 3] = y + mLayout.getTagHeight();
+        }
+    }
+
+    /**
+     * 之前的方式：每个Tag依次 drawRoundRect、drawText
+     */
+    @Benchmark
+    public void interleaved(Blackhole blackhole, FrameOps ops) {
+        TagLayout layout = mLayout;
+        int count = layout.getVisibleTagCount();
+        int tagHeight = layout.getTagHeight();
+        for (int i = 0; i < count; i++) {
+            float x = layout.getX(i);
+            float y = layout.getY(i);
+            blackhole.consume(x + layout.getTagWidth(i));
+            blackhole.consume(y + tagHeight);
+            blackhole.consume(layout.getText(i));
+        }
+        ops.canvasCalls = count * 2;
+        ops.paintSwitches = count * 2 - 1;
+    }
+
+    /**
+     * 现在的方式：一次 drawPath 绘制所有背景，再依次 drawText
+     */
+    @Benchmark
+    public void batched(Blackhole blackhole, FrameOps ops) {
+        TagLayout layout = mLayout;
+        blackhole.consume(mBackgroundPath);
+        int count = layout.getVisibleTagCount();
+        for (int i = 0; i < count; i++) {
+            blackhole.consume(layout.getX(i));
+            blackhole.consume(layout.getY(i));
+            blackhole.consume(layout.getText(i));
+        }
+        ops.canvasCalls = count + 1;
+        ops.paintSwitches = 1;
+    }
+}
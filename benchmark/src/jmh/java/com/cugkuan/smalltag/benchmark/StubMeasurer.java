@@ -0,0 +1,29 @@
+package com.cugkuan.smalltag.benchmark;
+
+import com.cugkuan.smalltag.layout.TagMeasurer;
+
+/**
+ * 不依赖Paint的测量，中日韩文字按一个字号宽，其他字符按0.55个字号宽计算。
+ * 逐个字符计算，开销和字符数成正比，近似于 Paint.measureText。
+ */
+public final class StubMeasurer implements TagMeasurer {
+
+    private final float mTextSize;
+
+    private final int mPadding;
+
+    public StubMeasurer(float textSize, int padding) {
+        this.mTextSize = textSize;
+        this.mPadding = padding;
+    }
+
+    @Override
+    public int measure(String tag) {
+        float width = 0;
+        for (int i = 0; i < tag.length(); i++) {
+            char c = tag.charAt(i);
+            width += c >= 0x2E80 ? mTextSize : mTextSize * 0.55f;
+        }
+        return Math.round(width) + mPadding;
+    }
+}
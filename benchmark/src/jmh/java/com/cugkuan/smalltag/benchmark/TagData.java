@@ -0,0 +1,50 @@
+package com.cugkuan.smalltag.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 生成测试用的Tags
+ */
+public final class TagData {
+
+    public static final String LATIN = "latin";
+
+    public static final String CJK = "cjk";
+
+    private static final String CJK_CHARS = "数学语文化学生物历史地理音乐美术体育政治英语物理编程设计产品运营";
+
+    private TagData() {
+    }
+
+    /**
+     * @param script {@link #LATIN} 或者 {@link #CJK}
+     * @param count  Tag的个数
+     * @param seed   相同的seed生成相同的Tags
+     */
+    public static List<String> tags(String script, int count, long seed) {
+        Random random = new Random(seed);
+        List<String> tags = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tags.add(CJK.equals(script) ? cjk(random) : latin(random));
+        }
+        return tags;
+    }
+
+    private static String latin(Random random) {
+        char[] chars = new char[3 + random.nextInt(10)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private static String cjk(Random random) {
+        char[] chars = new char[2 + random.nextInt(5)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = CJK_CHARS.charAt(random.nextInt(CJK_CHARS.length()));
+        }
+        return new String(chars);
+    }
+}
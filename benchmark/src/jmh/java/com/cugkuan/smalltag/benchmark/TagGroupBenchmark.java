@@ -0,0 +1,135 @@
+package com.cugkuan.smalltag.benchmark;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * 列表Item中竖直叠放多个SmallTagView,与1个SmallTagView显示多组Tags的对比。
+ * <p>
+ * 每一帧重新绑定Tags(在两组数据之间切换，相当于Item复用)，计算换行并绘制；Canvas的调用用
+ * {@link Blackhole} 代替，次数通过 {@link FrameOps} 输出。每个View自身的测量、布局和
+ * RenderNode的开销不在JVM中，不计入。
+ */
+@State(Scope.Thread)
+public class TagGroupBenchmark {
+
+    private static final int WIDTH = 1080;
+
+    private static final int TAG_HEIGHT = 50;
+
+    private static final int TAGS_PER_GROUP = 5;
+
+    @Param({"2", "3", "5"})
+    public int groupCount;
+
+    /**
+     * [数据][分组]
+     */
+    private List<String>[][] mData;
+
+    /**
+     * 每个View或者每一组一个，两种方式的换行计算相同
+     */
+    private TagLayout[] mLayouts;
+
+    private int mFrame;
+
+    /**
+     * 每一帧的Canvas调用次数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FrameOps {
+
+        public int canvasCalls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            canvasCalls = 0;
+        }
+    }
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        mData = new List[2][groupCount];
+        for (int d = 0; d < 2; d++) {
+            for (int g = 0; g < groupCount; g++) {
+                mData[d][g] = TagData.tags(TagData.CJK, TAGS_PER_GROUP, d * 100 + g);
+            }
+        }
+        mLayouts = new TagLayout[groupCount];
+        for (int g = 0; g < groupCount; g++) {
+            TagLayout layout = new TagLayout(new StubMeasurer(33, 24));
+            layout.setPadding(15, 0, 15, 0);
+            layout.setDivider(6, 6);
+            layout.setTagHeight(TAG_HEIGHT);
+            mLayouts[g] = layout;
+        }
+    }
+
+    /**
+     * 每组一个View：每个View各自 save、clipRect、translate、restore
+     */
+    @Benchmark
+    public int stackedViews(Blackhole blackhole, FrameOps ops) {
+        List<String>[] data = mData[mFrame++ & 1];
+        int height = 0;
+        for (int g = 0; g < groupCount; g++) {
+            TagLayout layout = bind(g, data[g]);
+            height += layout.getVisibleLineCount() * TAG_HEIGHT;
+            ops.canvasCalls += 4 + draw(layout, blackhole);
+        }
+        return height;
+    }
+
+    /**
+     * 一个View显示所有分组：一次 save、clipRect、restore,分组之间只 translate
+     */
+    @Benchmark
+    public int groupedView(Blackhole blackhole, FrameOps ops) {
+        List<String>[] data = mData[mFrame++ & 1];
+        int height = 0;
+        ops.canvasCalls += 3;
+        for (int g = 0; g < groupCount; g++) {
+            TagLayout layout = bind(g, data[g]);
+            height += layout.getVisibleLineCount() * TAG_HEIGHT;
+            ops.canvasCalls += 1 + draw(layout, blackhole);
+        }
+        return height;
+    }
+
+    private TagLayout bind(int group, List<String> tags) {
+        TagLayout layout = mLayouts[group];
+        layout.setTags(tags);
+        if (layout.needsLayout(WIDTH)) {
+            layout.layout(WIDTH);
+        }
+        return layout;
+    }
+
+    /**
+     * 与SmallTagView相同，一次 drawPath 绘制所有背景，再依次 drawText
+     *
+     * @return Canvas的调用次数
+     */
+    private static int draw(TagLayout layout, Blackhole blackhole) {
+        int count = layout.getVisibleTagCount();
+        for (int i = 0; i < count; i++) {
+            blackhole.consume(layout.getX(i));
+            blackhole.consume(layout.getY(i));
+            blackhole.consume(layout.getText(i));
+        }
+        return count + 1;
+    }
+}
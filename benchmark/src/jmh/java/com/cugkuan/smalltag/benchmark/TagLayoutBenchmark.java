@@ -0,0 +1,118 @@
+package com.cugkuan.smalltag.benchmark;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SmallTagView 中 setTags、onMeasure、onDraw 对应的计算。
+ * <p>
+ * 使用 {@link StubMeasurer} 代替Paint,绘制部分只遍历需要绘制的Tag和坐标，和 SmallTagView.drawTags 一致。
+ */
+@State(Scope.Thread)
+public class TagLayoutBenchmark {
+
+    private static final int WIDTH = 1080;
+
+    private static final int TEXT_SIZE = 33;
+
+    private static final int PADDING = 24;
+
+    @Param({"1", "10", "50", "200", "500"})
+    public int tagCount;
+
+    @Param({TagData.LATIN, TagData.CJK})
+    public String script;
+
+    @Param({"2147483647", "2"})
+    public int maxLines;
+
+    private List<String> mTags;
+
+    /**
+     * 和mTags内容相同的另一个List,模拟每次绑定时创建新的List
+     */
+    private List<String> mSameTags;
+
+    private List<String> mOtherTags;
+
+    private TagLayout mLayout;
+
+    private boolean mFlip;
+
+    @Setup
+    public void setUp() {
+        mTags = TagData.tags(script, tagCount, 1);
+        mSameTags = new ArrayList<>(mTags);
+        mOtherTags = TagData.tags(script, tagCount, 2);
+        mLayout = newLayout();
+        mLayout.setTags(mTags);
+        mLayout.layout(WIDTH);
+    }
+
+    private TagLayout newLayout() {
+        TagLayout layout = new TagLayout(new StubMeasurer(TEXT_SIZE, PADDING));
+        layout.setPadding(15, 15, 0, 15);
+        layout.setDivider(6, 6);
+        layout.setTagHeight(50);
+        layout.setMaxLines(maxLines);
+        return layout;
+    }
+
+    /**
+     * 第一次设置Tags:测量所有的Tag并计算换行
+     */
+    @Benchmark
+    public int measureAndLayout() {
+        TagLayout layout = newLayout();
+        layout.setTags(mTags);
+        layout.layout(WIDTH);
+        return layout.getLineCount();
+    }
+
+    /**
+     * 复用的View再次绑定相同内容的Tags
+     */
+    @Benchmark
+    public int rebindSameList() {
+        mLayout.setTags(mSameTags);
+        mLayout.layout(WIDTH);
+        return mLayout.getLineCount();
+    }
+
+    /**
+     * 复用的View绑定不同内容的Tags
+     */
+    @Benchmark
+    public int rebindNewList() {
+        mFlip = !mFlip;
+        mLayout.setTags(mFlip ? mOtherTags : mTags);
+        mLayout.layout(WIDTH);
+        return mLayout.getLineCount();
+    }
+
+    /**
+     * 绘制时的遍历
+     */
+    @Benchmark
+    public void draw(Blackhole blackhole) {
+        TagLayout layout = mLayout;
+        int count = layout.getVisibleTagCount();
+        int tagHeight = layout.getTagHeight();
+        for (int i = 0; i < count; i++) {
+            float x = layout.getX(i);
+            float y = layout.getY(i);
+            blackhole.consume(x + layout.getTagWidth(i));
+            blackhole.consume(y + tagHeight);
+            blackhole.consume(layout.getText(i));
+        }
+    }
+}
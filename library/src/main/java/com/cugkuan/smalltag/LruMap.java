@@ -0,0 +1,88 @@
+package com.cugkuan.smalltag;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * 按条数淘汰的LRU表，记录命中次数，{@link TagWidthCache}、{@link TagEllipsizeCache} 共用。
+ * <p>
+ * 不是线程安全的，由使用者加锁。
+ */
+final class LruMap<K, V> {
+
+    private final LinkedHashMap<K, V> mMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int mMaxSize;
+
+    private int mHitCount;
+
+    private int mMissCount;
+
+    LruMap(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.mMaxSize = maxSize;
+    }
+
+    /**
+     * 查找并记录命中或者未命中
+     */
+    V get(K key) {
+        V value = mMap.get(key);
+        if (value != null) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+        }
+        return value;
+    }
+
+    void put(K key, V value) {
+        mMap.put(key, value);
+        trimToSize(mMaxSize);
+    }
+
+    void resize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    void clear() {
+        mMap.clear();
+    }
+
+    int size() {
+        return mMap.size();
+    }
+
+    int maxSize() {
+        return mMaxSize;
+    }
+
+    int hitCount() {
+        return mHitCount;
+    }
+
+    int missCount() {
+        return mMissCount;
+    }
+
+    void resetStats() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<K, V>> iterator = mMap.entrySet().iterator();
+        while (mMap.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Paint;
+
+import com.cugkuan.smalltag.layout.TagEllipsizer;
+import com.cugkuan.smalltag.layout.TagMeasurer;
+
+/**
+ * 使用Paint测量Tag的宽度，测量结果通过 {@link TagWidthCache} 缓存；
+ * 截断过宽的Tag,结果通过 {@link TagEllipsizeCache} 缓存。
+ */
+final class PaintTagMeasurer implements TagMeasurer, TagEllipsizer {
+
+    private final Paint mPaint;
+
+    private final int mPaddingLeft;
+
+    private final int mPaddingRight;
+
+    private TagWidthCache mCache;
+
+    private TagEllipsizeCache mEllipsizeCache = TagEllipsizeCache.getDefault();
+
+    PaintTagMeasurer(Paint paint, int paddingLeft, int paddingRight, TagWidthCache cache) {
+        this.mPaint = paint;
+        this.mPaddingLeft = paddingLeft;
+        this.mPaddingRight = paddingRight;
+        this.mCache = cache;
+    }
+
+    void setCache(TagWidthCache cache) {
+        this.mCache = cache;
+    }
+
+    TagWidthCache getCache() {
+        return mCache;
+    }
+
+    void setEllipsizeCache(TagEllipsizeCache cache) {
+        this.mEllipsizeCache = cache;
+    }
+
+    TagEllipsizeCache getEllipsizeCache() {
+        return mEllipsizeCache;
+    }
+
+    @Override
+    public int measure(String tag) {
+        return mCache.getWidth(tag, mPaint, mPaddingLeft, mPaddingRight);
+    }
+
+    @Override
+    public int ellipsize(String tag, int maxWidth, String[] out) {
+        return mEllipsizeCache.ellipsize(tag, maxWidth, mPaint, mPaddingLeft, mPaddingRight, out);
+    }
+}
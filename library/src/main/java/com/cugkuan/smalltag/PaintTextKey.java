@@ -0,0 +1,78 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+
+
+/**
+ * 以(文字, 最大宽度, 文字大小, 字体, 字间距, 左右内边距)作为缓存的key,
+ * {@link TagWidthCache} 和 {@link TagEllipsizeCache} 共用。
+ * <p>
+ * 查找时复用同一个对象(在锁内)，放入缓存时创建新的。
+ */
+final class PaintTextKey {
+
+    private String text;
+    private int maxWidth;
+    private float textSize;
+    private Typeface typeface;
+    private float letterSpacing;
+    private int paddingLeft;
+    private int paddingRight;
+
+    /**
+     * @param maxWidth 截断时Tag的最大宽度，测量宽度时为0
+     */
+    void set(String text, int maxWidth, Paint paint, int paddingLeft, int paddingRight) {
+        this.text = text;
+        this.maxWidth = maxWidth;
+        this.textSize = paint.getTextSize();
+        this.typeface = paint.getTypeface();
+        this.letterSpacing = letterSpacing(paint);
+        this.paddingLeft = paddingLeft;
+        this.paddingRight = paddingRight;
+    }
+
+    /**
+     * 查找后释放文字的引用
+     */
+    void clear() {
+        text = null;
+        typeface = null;
+    }
+
+    static float letterSpacing(Paint paint) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ? paint.getLetterSpacing() : 0f;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PaintTextKey)) {
+            return false;
+        }
+        PaintTextKey key = (PaintTextKey) o;
+        return maxWidth == key.maxWidth
+                && textSize == key.textSize
+                && letterSpacing == key.letterSpacing
+                && paddingLeft == key.paddingLeft
+                && paddingRight == key.paddingRight
+                && typeface == key.typeface
+                && (text == null ? key.text == null : text.equals(key.text));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = text != null ? text.hashCode() : 0;
+        result = 31 * result + maxWidth;
+        result = 31 * result + Float.floatToIntBits(textSize);
+        result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+        result = 31 * result + Float.floatToIntBits(letterSpacing);
+        result = 31 * result + paddingLeft;
+        result = 31 * result + paddingRight;
+        return result;
+    }
+}
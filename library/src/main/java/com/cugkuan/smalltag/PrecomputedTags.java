@@ -0,0 +1,286 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextPaint;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+
+/**
+ * 预先计算好的Tags,包含了每个Tag的宽度和所处的行列。
+ * <p>
+ * 不可变对象，可以在后台线程中创建，然后通过 {@link SmallTagView#setTags(PrecomputedTags)}
+ * 设置，此时UI线程只需要绘制。
+ */
+public final class PrecomputedTags {
+
+    private final List<String> mTags;
+    private final Params mParams;
+    private final int mWidth;
+    /**
+     * 创建后不再修改
+     */
+    private final TagLayout mTagLayout;
+    /**
+     * 排列使用的文字大小，自动缩小时可能小于样式的文字大小
+     */
+    private final int mTextSize;
+    /**
+     * 在创建的线程中计算，比较时先比较hash
+     */
+    private final int mHash;
+
+    private PrecomputedTags(List<String> tags, Params params, int width, TagLayout tagLayout,
+                            int textSize) {
+        this.mTags = tags;
+        this.mParams = params;
+        this.mWidth = width;
+        this.mTagLayout = tagLayout;
+        this.mTextSize = textSize;
+        this.mHash = 31 * (31 * tags.hashCode() + params.hashCode()) + width;
+    }
+
+    /**
+     * 计算Tags的宽度和换行，可以在任意线程中调用。
+     * 样式设置了 {@link TagStyle#getAutoFitMinTextSize()} 时，与View一样缩小文字使Tags排列在maxLines行内。
+     *
+     * @param tags   Tags
+     * @param params 样式参数，通过 {@link SmallTagView#getPrecomputedTagsParams()} 获取
+     * @param width  可用的宽度，对应View测量时 widthMeasureSpec 的 size
+     */
+    public static PrecomputedTags create(@NonNull List<String> tags, @NonNull Params params, int width) {
+        List<String> copy = Collections.unmodifiableList(new ArrayList<>(tags));
+        TextPaint paint = params.newTextPaint();
+        Paint.FontMetrics fontMetrics = paint.getFontMetrics();
+        int fontHeight = Math.round(fontMetrics.bottom - fontMetrics.top);
+        int verticalPadding = params.textPaddingTop + params.textPaddingBottom;
+
+        PaintTagMeasurer measurer = new PaintTagMeasurer(paint,
+                params.textPaddingLeft, params.textPaddingRight, TagWidthCache.getDefault());
+        TagLayout tagLayout = new TagLayout(measurer);
+        if (params.ellipsize) {
+            //与View相同的截断，结果通过 TagEllipsizeCache 共享
+            tagLayout.setEllipsizer(measurer);
+            tagLayout.setMaxTagWidth(params.maxTagWidth);
+        }
+        tagLayout.setPadding(params.paddingLeft, 0, params.paddingRight, 0);
+        tagLayout.setDivider(params.horizontalDivider, params.verticalDivider);
+        tagLayout.setTagHeight(fontHeight + verticalPadding);
+        tagLayout.setMaxTagNum(params.maxTagNum);
+        tagLayout.setMaxLines(params.maxLines);
+        tagLayout.setShowOverflow(params.showOverflow);
+        tagLayout.setTags(copy);
+        int textSize = (int) params.textSize;
+        if (params.autoFitMinTextSize > 0 && !copy.isEmpty()) {
+            int textPadding = params.textPaddingLeft + params.textPaddingRight;
+            int fitTextSize = tagLayout.layoutToFit(width, textSize, params.autoFitMinTextSize, textPadding);
+            //与 TagGroup#setTextSize 相同，Tag的高度随文字缩小
+            tagLayout.setTagHeight(TagStyle.scaleTagHeight(fontHeight, verticalPadding, fitTextSize, textSize));
+            tagLayout.setTextScale((float) fitTextSize / textSize, textPadding);
+            textSize = fitTextSize;
+        }
+        if (tagLayout.needsLayout(width)) {
+            tagLayout.layout(width);
+        }
+        return new PrecomputedTags(copy, params, width, tagLayout, textSize);
+    }
+
+    /**
+     * 在executor中计算Tags
+     *
+     * @see #create(List, Params, int)
+     */
+    public static Future<PrecomputedTags> getTagsFuture(@NonNull final List<String> tags,
+                                                        @NonNull final Params params,
+                                                        final int width,
+                                                        @NonNull Executor executor) {
+        FutureTask<PrecomputedTags> task = new FutureTask<>(new Callable<PrecomputedTags>() {
+            @Override
+            public PrecomputedTags call() {
+                return create(tags, params, width);
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    public List<String> getTags() {
+        return mTags;
+    }
+
+    public Params getParams() {
+        return mParams;
+    }
+
+    /**
+     * 计算时使用的可用宽度
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    TagLayout getTagLayout() {
+        return mTagLayout;
+    }
+
+    int getTextSize() {
+        return mTextSize;
+    }
+
+    /**
+     * Tags、样式参数和宽度都相同时，计算的结果也相同
+     */
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PrecomputedTags)) {
+            return false;
+        }
+        PrecomputedTags that = (PrecomputedTags) o;
+        return mHash == that.mHash
+                && mWidth == that.mWidth
+                && mParams.equals(that.mParams)
+                && mTags.equals(that.mTags);
+    }
+
+    @Override
+    public int hashCode() {
+        return mHash;
+    }
+
+    /**
+     * 影响Tag测量和换行的样式参数,不可变。
+     */
+    public static final class Params {
+
+        private final float textSize;
+        private final Typeface typeface;
+        private final float letterSpacing;
+        private final int textPaddingLeft;
+        private final int textPaddingTop;
+        private final int textPaddingRight;
+        private final int textPaddingBottom;
+        private final int horizontalDivider;
+        private final int verticalDivider;
+        private final int paddingLeft;
+        private final int paddingRight;
+        private final int maxTagNum;
+        private final int maxLines;
+        private final boolean showOverflow;
+        private final boolean ellipsize;
+        private final int maxTagWidth;
+        /**
+         * 不自动缩小时为0
+         */
+        private final int autoFitMinTextSize;
+
+        Params(Paint textPaint, int textPaddingLeft, int textPaddingTop, int textPaddingRight,
+               int textPaddingBottom, int horizontalDivider, int verticalDivider,
+               int paddingLeft, int paddingRight, int maxTagNum, int maxLines,
+               boolean showOverflow, boolean ellipsize, int maxTagWidth, int autoFitMinTextSize) {
+            this.textSize = textPaint.getTextSize();
+            this.typeface = textPaint.getTypeface();
+            this.letterSpacing = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                    ? textPaint.getLetterSpacing() : 0f;
+            this.textPaddingLeft = textPaddingLeft;
+            this.textPaddingTop = textPaddingTop;
+            this.textPaddingRight = textPaddingRight;
+            this.textPaddingBottom = textPaddingBottom;
+            this.horizontalDivider = horizontalDivider;
+            this.verticalDivider = verticalDivider;
+            this.paddingLeft = paddingLeft;
+            this.paddingRight = paddingRight;
+            this.maxTagNum = maxTagNum;
+            this.maxLines = maxLines;
+            this.showOverflow = showOverflow;
+            this.ellipsize = ellipsize;
+            this.maxTagWidth = maxTagWidth;
+            this.autoFitMinTextSize = autoFitMinTextSize;
+        }
+
+        /**
+         * View的左右内边距是否与创建时相同，样式不可变，只有内边距会变化
+         */
+        boolean hasPadding(int paddingLeft, int paddingRight) {
+            return this.paddingLeft == paddingLeft && this.paddingRight == paddingRight;
+        }
+
+        /**
+         * 每次创建新的Paint,Paint不是线程安全的，不能在多个线程中共用。
+         */
+        TextPaint newTextPaint() {
+            TextPaint paint = new TextPaint();
+            paint.setTextSize(textSize);
+            paint.setTypeface(typeface);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                paint.setLetterSpacing(letterSpacing);
+            }
+            paint.setAntiAlias(true);
+            return paint;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Params)) {
+                return false;
+            }
+            Params params = (Params) o;
+            return textSize == params.textSize
+                    && letterSpacing == params.letterSpacing
+                    && textPaddingLeft == params.textPaddingLeft
+                    && textPaddingTop == params.textPaddingTop
+                    && textPaddingRight == params.textPaddingRight
+                    && textPaddingBottom == params.textPaddingBottom
+                    && horizontalDivider == params.horizontalDivider
+                    && verticalDivider == params.verticalDivider
+                    && paddingLeft == params.paddingLeft
+                    && paddingRight == params.paddingRight
+                    && maxTagNum == params.maxTagNum
+                    && maxLines == params.maxLines
+                    && showOverflow == params.showOverflow
+                    && ellipsize == params.ellipsize
+                    && maxTagWidth == params.maxTagWidth
+                    && autoFitMinTextSize == params.autoFitMinTextSize
+                    && typeface == params.typeface;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(textSize);
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + Float.floatToIntBits(letterSpacing);
+            result = 31 * result + textPaddingLeft;
+            result = 31 * result + textPaddingTop;
+            result = 31 * result + textPaddingRight;
+            result = 31 * result + textPaddingBottom;
+            result = 31 * result + horizontalDivider;
+            result = 31 * result + verticalDivider;
+            result = 31 * result + paddingLeft;
+            result = 31 * result + paddingRight;
+            result = 31 * result + maxTagNum;
+            result = 31 * result + maxLines;
+            result = 31 * result + (showOverflow ? 1 : 0);
+            result = 31 * result + (ellipsize ? 1 : 0);
+            result = 31 * result + maxTagWidth;
+            result = 31 * result + autoFitMinTextSize;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.cugkuan.smalltag;
+
+import android.os.Build;
+import android.os.Trace;
+import android.support.annotation.Nullable;
+
+/**
+ * SmallTagView的性能统计，默认关闭。
+ * <p>
+ * 通过 {@link #install(SmallTagMetrics)} 对所有的SmallTagView开启，或者通过
+ * {@link SmallTagView#setMetrics(SmallTagMetrics)} 只对某个View开启。开启后记录
+ * setTags、onMeasure、onDraw 的耗时，并以Trace section包裹(API 18+)；
+ * 同时统计测量的Tag个数、宽度缓存的命中次数、requestLayout的调用与避免次数、换行缓存和绘制缓存的命中次数，
+ * 以及因为maxLines、maxTagNum没有显示的Tag个数。
+ * <p>
+ * 关闭时SmallTagView中只多一次null判断。计数只在UI线程中修改，非线程安全。
+ */
+public class SmallTagMetrics {
+
+    public static final int PHASE_SET_TAGS = 0;
+
+    public static final int PHASE_MEASURE = 1;
+
+    public static final int PHASE_DRAW = 2;
+
+    private static final int PHASE_COUNT = 3;
+
+    private static final String[] SECTION_NAMES = {
+            "SmallTagView#setTags", "SmallTagView#onMeasure", "SmallTagView#onDraw"
+    };
+
+    private static volatile SmallTagMetrics sInstalled;
+
+    private final long[] mPhaseCounts = new long[PHASE_COUNT];
+
+    private final long[] mPhaseTotalNanos = new long[PHASE_COUNT];
+
+    private final long[] mPhaseMaxNanos = new long[PHASE_COUNT];
+
+    private long mMeasureCount;
+
+    private long mWidthCacheHitCount;
+
+    private long mWidthCacheMissCount;
+
+    private long mRequestLayoutCount;
+
+    private long mRequestLayoutAvoidedCount;
+
+    private long mLayoutCacheHitCount;
+
+    private long mLayoutCacheMissCount;
+
+    private long mRenderCacheHitCount;
+
+    private long mRenderCacheMissCount;
+
+    private long mTruncatedTagCount;
+
+    /**
+     * 对所有没有单独设置的SmallTagView开启统计，为null时关闭
+     */
+    public static void install(@Nullable SmallTagMetrics metrics) {
+        sInstalled = metrics;
+    }
+
+    @Nullable
+    public static SmallTagMetrics getInstalled() {
+        return sInstalled;
+    }
+
+    long beginPhase(int phase) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(SECTION_NAMES[phase]);
+        }
+        return System.nanoTime();
+    }
+
+    void endPhase(int phase, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+        mPhaseCounts[phase]++;
+        mPhaseTotalNanos[phase] += nanos;
+        if (nanos > mPhaseMaxNanos[phase]) {
+            mPhaseMaxNanos[phase] = nanos;
+        }
+        onPhase(phase, nanos);
+    }
+
+    /**
+     * 每个阶段结束时回调，可以重写后上报
+     *
+     * @param phase {@link #PHASE_SET_TAGS}、{@link #PHASE_MEASURE} 或 {@link #PHASE_DRAW}
+     * @param nanos 耗时
+     */
+    protected void onPhase(int phase, long nanos) {
+    }
+
+    void onMeasured(int count) {
+        mMeasureCount += count;
+    }
+
+    void onWidthCache(int hits, int misses) {
+        mWidthCacheHitCount += hits;
+        mWidthCacheMissCount += misses;
+    }
+
+    void onRequestLayout(boolean issued) {
+        if (issued) {
+            mRequestLayoutCount++;
+        } else {
+            mRequestLayoutAvoidedCount++;
+        }
+    }
+
+    void onLayoutCache(boolean hit) {
+        if (hit) {
+            mLayoutCacheHitCount++;
+        } else {
+            mLayoutCacheMissCount++;
+        }
+    }
+
+    void onRenderCache(boolean hit) {
+        if (hit) {
+            mRenderCacheHitCount++;
+        } else {
+            mRenderCacheMissCount++;
+        }
+    }
+
+    void onTruncated(int count) {
+        mTruncatedTagCount += count;
+    }
+
+    /**
+     * 阶段执行的次数
+     */
+    public long getPhaseCount(int phase) {
+        return mPhaseCounts[phase];
+    }
+
+    /**
+     * 阶段的总耗时，纳秒
+     */
+    public long getPhaseTotalNanos(int phase) {
+        return mPhaseTotalNanos[phase];
+    }
+
+    /**
+     * 阶段单次的最大耗时，纳秒
+     */
+    public long getPhaseMaxNanos(int phase) {
+        return mPhaseMaxNanos[phase];
+    }
+
+    /**
+     * 换行计算时测量的Tag个数，宽度来自 {@link TagWidthCache} 时也计入，
+     * 其中实际调用 measureText 的见 {@link #getWidthCacheMissCount()}
+     */
+    public long getMeasureCount() {
+        return mMeasureCount;
+    }
+
+    /**
+     * 计算换行时 {@link TagWidthCache} 命中的次数，命中时不调用 measureText。
+     * 缓存在View之间共享，其他线程(如 {@link PrecomputedTags})同时使用时也会计入
+     */
+    public long getWidthCacheHitCount() {
+        return mWidthCacheHitCount;
+    }
+
+    /**
+     * 计算换行时 {@link TagWidthCache} 没有命中，调用 measureText 的次数
+     */
+    public long getWidthCacheMissCount() {
+        return mWidthCacheMissCount;
+    }
+
+    /**
+     * Tags变化后调用requestLayout的次数
+     */
+    public long getRequestLayoutCount() {
+        return mRequestLayoutCount;
+    }
+
+    /**
+     * Tags变化后尺寸不变，只重绘的次数
+     */
+    public long getRequestLayoutAvoidedCount() {
+        return mRequestLayoutAvoidedCount;
+    }
+
+    public long getLayoutCacheHitCount() {
+        return mLayoutCacheHitCount;
+    }
+
+    public long getLayoutCacheMissCount() {
+        return mLayoutCacheMissCount;
+    }
+
+    public long getRenderCacheHitCount() {
+        return mRenderCacheHitCount;
+    }
+
+    public long getRenderCacheMissCount() {
+        return mRenderCacheMissCount;
+    }
+
+    /**
+     * 每次计算换行后，因为maxLines、maxTagNum没有显示的Tag个数之和
+     */
+    public long getTruncatedTagCount() {
+        return mTruncatedTagCount;
+    }
+
+    public void reset() {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            mPhaseCounts[i] = 0;
+            mPhaseTotalNanos[i] = 0;
+            mPhaseMaxNanos[i] = 0;
+        }
+        mMeasureCount = 0;
+        mWidthCacheHitCount = 0;
+        mWidthCacheMissCount = 0;
+        mRequestLayoutCount = 0;
+        mRequestLayoutAvoidedCount = 0;
+        mLayoutCacheHitCount = 0;
+        mLayoutCacheMissCount = 0;
+        mRenderCacheHitCount = 0;
+        mRenderCacheMissCount = 0;
+        mTruncatedTagCount = 0;
+    }
+}
@@ -0,0 +1,189 @@
+package com.cugkuan.smalltag;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+
+/**
+ * 在UI线程两帧之间的空闲时间中，预先计算即将显示的Tags,结果放入SmallTagView使用的
+ * {@link TagLayoutCache} 和 {@link TagWidthCache}。列表的Item绑定时直接从缓存中恢复换行结果。
+ * <p>
+ * Adapter在滚动时把后面几个位置的Tags交给 {@link #prefetch(List)}。
+ * 通过 {@link MessageQueue.IdleHandler} 在消息队列空闲时执行，每次最多使用
+ * {@link #setFrameBudget(long)} 的时间，没有完成的留到下一次空闲。
+ * <p>
+ * 只能在UI线程中使用；只预先计算第一组Tags。
+ */
+public final class SmallTagPrefetcher implements MessageQueue.IdleHandler {
+
+    /**
+     * 默认每次空闲时最多使用的时间，纳秒
+     */
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 4000000L;
+
+    /**
+     * 默认最多等待计算的Tags个数，超过时丢弃最早加入的
+     */
+    public static final int DEFAULT_MAX_PENDING = 32;
+
+    private final ArrayDeque<List<String>> mPending = new ArrayDeque<>();
+
+    private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+
+    private int mMaxPending = DEFAULT_MAX_PENDING;
+
+    private boolean mScheduled;
+
+    /**
+     * 参照的View的样式和测量参数，{@link #setTarget(SmallTagView)} 时获取
+     */
+    private TagStyle mStyle;
+    private TagLayoutCache mLayoutCache;
+    private int mWidthMeasureSpec = -1;
+    private int mPaddingLeft;
+    private int mPaddingRight;
+
+    /**
+     * 计算时复用，样式变化时重新创建
+     */
+    private TagLayout mTagLayout;
+    private PaintTagMeasurer mMeasurer;
+
+    private int mPrefetchedCount;
+
+    /**
+     * 以View当前的样式、宽度和padding计算。View还没有测量时只测量Tag的宽度。
+     * <p>
+     * 列表中的Item宽度相同，在绑定或者测量后设置一次即可。
+     */
+    public void setTarget(@NonNull SmallTagView view) {
+        TagStyle style = view.getTagStyle();
+        TagWidthCache widthCache = view.getTagWidthCache();
+        if (style != mStyle || mMeasurer == null || mMeasurer.getCache() != widthCache) {
+            mStyle = style;
+            mMeasurer = new PaintTagMeasurer(style.getTextPaint(), style.getTextPaddingLeft(),
+                    style.getTextPaddingRight(), widthCache);
+            mTagLayout = new TagLayout(mMeasurer);
+            if (style.shouldEllipsize()) {
+                mTagLayout.setEllipsizer(mMeasurer);
+                mTagLayout.setMaxTagWidth(style.getMaxTagWidth());
+            }
+        }
+        mLayoutCache = view.getTagLayoutCache();
+        mWidthMeasureSpec = view.getLastWidthMeasureSpec();
+        mPaddingLeft = view.getPaddingLeft();
+        mPaddingRight = view.getPaddingRight();
+    }
+
+    /**
+     * 每次空闲时最多使用的时间，默认 {@link #DEFAULT_FRAME_BUDGET_NANOS}
+     */
+    public void setFrameBudget(long nanos) {
+        mFrameBudgetNanos = nanos;
+    }
+
+    public void setMaxPending(int maxPending) {
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("maxPending <= 0");
+        }
+        mMaxPending = maxPending;
+        while (mPending.size() > maxPending) {
+            mPending.pollFirst();
+        }
+    }
+
+    /**
+     * 加入等待计算的Tags,在下一次空闲时计算。需要先调用 {@link #setTarget(SmallTagView)}
+     *
+     * @param tags 计算前不能修改
+     */
+    public void prefetch(@NonNull List<String> tags) {
+        if (mStyle == null) {
+            throw new IllegalStateException("setTarget() must be called first");
+        }
+        if (tags.isEmpty()) {
+            return;
+        }
+        if (mPending.size() == mMaxPending) {
+            mPending.pollFirst();
+        }
+        mPending.addLast(tags);
+        if (!mScheduled) {
+            mScheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * 丢弃所有等待计算的Tags,如列表数据整体变化时
+     */
+    public void cancel() {
+        mPending.clear();
+        if (mScheduled) {
+            mScheduled = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+    }
+
+    public int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * 已经计算完成的Tags个数，包括缓存中已有而跳过的
+     */
+    public int getPrefetchedCount() {
+        return mPrefetchedCount;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        long deadline = System.nanoTime() + mFrameBudgetNanos;
+        //至少计算一个，预算很小时也能完成
+        do {
+            List<String> tags = mPending.pollFirst();
+            if (tags == null) {
+                break;
+            }
+            prefetchNow(tags);
+        } while (System.nanoTime() < deadline);
+        mScheduled = !mPending.isEmpty();
+        return mScheduled;
+    }
+
+    /**
+     * 与 SmallTagView 测量时的参数一致地计算换行，缓存中已有时跳过
+     */
+    void prefetchNow(List<String> tags) {
+        mPrefetchedCount++;
+        TagStyle style = mStyle;
+        if (mWidthMeasureSpec == -1 || mLayoutCache == null || style.isAutoFit()) {
+            //不知道宽度，或者自动缩小文字时不使用换行缓存，只测量
+            for (int i = 0, size = tags.size(), max = Math.min(size, style.getMaxTagNum()); i < max; i++) {
+                mMeasurer.measure(tags.get(i));
+            }
+            return;
+        }
+        TagLayout tagLayout = mTagLayout;
+        tagLayout.setMaxTagNum(style.getMaxTagNum());
+        tagLayout.setShowOverflow(style.isShowOverflow());
+        tagLayout.setPadding(mPaddingLeft, 0, mPaddingRight, 0);
+        tagLayout.setDivider(style.getHorizontalDivider(), style.getVerticalDivider());
+        tagLayout.setTagHeight(style.getTagHeight());
+        tagLayout.setMaxLines(style.getMaxLines());
+        tagLayout.setTags(tags);
+        int horizontalPadding = mPaddingLeft + mPaddingRight;
+        if (mLayoutCache.contains(tagLayout, style, mWidthMeasureSpec, horizontalPadding)) {
+            return;
+        }
+        tagLayout.layout(View.MeasureSpec.getSize(mWidthMeasureSpec));
+        mLayoutCache.put(tagLayout, style, mWidthMeasureSpec, horizontalPadding);
+    }
+}
@@ -1,23 +1,28 @@
 package com.cugkuan.smalltag;
 
+import android.annotation.TargetApi;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.content.res.Configuration;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.ColorFilter;
 import android.graphics.Paint;
-import android.graphics.PixelFormat;
+import android.graphics.Picture;
+import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.Region;
-import android.graphics.drawable.Drawable;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.text.TextPaint;
-import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.view.HapticFeedbackConstants;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
-import android.view.ViewGroup;
+import android.view.ViewConfiguration;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+import com.cugkuan.smalltag.layout.TagTable;
 
-import java.util.ArrayList;
 import java.util.List;
 
 
@@ -30,119 +35,222 @@ public final class SmallTagView extends View {
 
 
     /**
-     * 默认的TagColor
+     * 根据系统版本选择绘制方式
+     */
+    public static final int RENDER_MODE_AUTO = 0;
+    /**
+     * 使用软件绘制层
+     */
+    public static final int RENDER_MODE_SOFTWARE = 1;
+    /**
+     * 不使用软件绘制层，允许硬件加速绘制
+     */
+    public static final int RENDER_MODE_HARDWARE = 2;
+
+    /**
+     * 根据Tags计算宽高
+     */
+    public static final int SIZE_MODE_WRAP = 0;
+    /**
+     * 宽度为可用的宽度，高度为maxLines行Tag的高度，与Tags无关，setTags时只重绘，不会requestLayout。
+     * 没有设置maxLines时等同于 {@link #SIZE_MODE_WRAP}
      */
-    private static final int DEFAULT_COLOR = Color.parseColor("#F2F2F2");
+    public static final int SIZE_MODE_FIXED_LINES = 1;
 
-    private int mTagBackground = DEFAULT_COLOR;
     /**
-     * 垂直方向Tag的间隔
+     * Tag的样式，可能被多个View共享
      */
-    private int mVerticalDivider;
+    private final TagStyle mStyle;
+
+    private int mRenderMode = RENDER_MODE_AUTO;
+
     /**
-     * 竖直方向Tag的间隔
+     * 第一组Tags,即 {@link #setTags(List)} 设置的Tags
      */
-    private int mHorizontalDivider;
+    private final TagGroup mMainGroup;
     /**
-     * tag的圆角
+     * 第一组Tags的文字、宽度和位置
      */
-    private int mTagRadius;
+    private final TagLayout mTagLayout;
+
+    private final PaintTagMeasurer mMeasurer;
     /**
-     * Tag的文字Size.
+     * 所有的分组，第一个为 mMainGroup
      */
-    private int mTagTextSize = 15;
+    private TagGroup[] mGroups = new TagGroup[1];
+    private int mGroupCount = 1;
 
-    private int mTagTextColor = Color.parseColor("#000000");
+    private TagDictionary mDictionary = TagDictionary.getDefault();
+    /**
+     * mDictionary 中 mStyle 对应的宽度表，第一次通过ID设置Tags时获取
+     */
+    private TagTable mDictionaryTable;
+    /**
+     * 最近一次通过 {@link #setTags(TagDictionary.Snapshot)} 设置的Tags
+     */
+    private TagDictionary.Snapshot mSnapshot;
 
-    private int mTextPaddingLeft;
+    /**
+     * 上一次设置的PrecomputedTags,之后Tags变化时清空
+     */
+    private PrecomputedTags mPrecomputed;
 
-    private int mTextPaddingRight;
+    /**
+     * 当前样式和内边距对应的参数，内边距变化时重新创建
+     */
+    private PrecomputedTags.Params mPrecomputedParams;
 
-    private int mTextPaddingTop;
+    /**
+     * 绘制时复用的RectF
+     */
+    private final RectF mTagRect = new RectF();
+    /**
+     * 绘制时获取Canvas的clip
+     */
+    private final Rect mClipBounds = new Rect();
+    /**
+     * 只重新绘制一个Tag时的脏区域
+     */
+    private final Rect mDirtyRect = new Rect();
 
-    private int mTextPaddingBottom;
 
+    private Layout mLayout;
+
+    /**
+     * 绘制结果的缓存，为null时不使用
+     */
+    private TagRenderCache mRenderCache;
     /**
-     * tag的最大行数。
+     * 换行结果的缓存，为null时不使用缓存
      */
-    private int mMaxLines = Integer.MAX_VALUE;
+    private TagLayoutCache mLayoutCache = TagLayoutCache.getDefault();
     /**
-     * 显示的最大个数
+     * 性能统计，默认为null
      */
-    private int mMaxTagNum = Integer.MAX_VALUE;
-    private List<TagDrawable> mTagDrawables;
+    private SmallTagMetrics mMetrics;
+
+    /**
+     * 查找绘制缓存时使用的样式，绘制时填充，避免创建对象
+     */
+    private final int[] mRenderStyle = new int[17];
+
+    private OnTagClickListener mOnTagClickListener;
 
-    private Paint mTextPaint;
+    private OnTagLongClickListener mOnTagLongClickListener;
     /**
-     * tag 的背景颜色
+     * 按下的Tag及其分组，没有时为-1
      */
-    private Paint mTagBackgroundPaint;
+    private int mPressedTag = -1;
+    private int mPressedGroup;
+    /**
+     * 最近一次按下的Tag所在的分组
+     */
+    private int mTouchedGroup;
+    /**
+     * {@link #findTag(float, float)} 找到的Tag所在的分组
+     */
+    private int mHitGroup;
 
+    private boolean mHasPerformedLongPress;
 
-    private List<String> mTags;
+    /**
+     * 每个Tag的虚拟无障碍节点，无障碍服务第一次查询时创建
+     */
+    private TagAccessibilityProvider mAccessibilityProvider;
 
+    private boolean mLongPressPending;
 
-    private Layout mLayout;
+    private float mDownX;
+
+    private float mDownY;
+
+    private final int mTouchSlop;
+
+    private final Runnable mLongPressRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mLongPressPending = false;
+            int index = mPressedTag;
+            if (index >= 0 && performTagLongClick(mPressedGroup, index)) {
+                mHasPerformedLongPress = true;
+            }
+        }
+    };
 
 
     public SmallTagView(Context context) {
-        this(context, null);
+        this(context, (AttributeSet) null);
     }
 
     public SmallTagView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, TagStyle.obtain(context, attrs));
+    }
+
+    /**
+     * 使用已有的样式创建，不解析任何属性，列表中的View可以共享同一个TagStyle
+     */
+    public SmallTagView(Context context, TagStyle style) {
+        this(context, null, style);
+    }
+
+    private SmallTagView(Context context, @Nullable AttributeSet attrs, TagStyle style) {
         super(context, attrs);
-        setLayerType(View.LAYER_TYPE_SOFTWARE,null);
-        if (attrs != null) {
-            TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.SmallTagView);
-            if (array.hasValue(R.styleable.SmallTagView_tagBackground)) {
-                mTagBackground = array.getColor(R.styleable.SmallTagView_tagBackground, DEFAULT_COLOR);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_tagVerticalDivider)) {
-                mVerticalDivider = array.getDimensionPixelSize(R.styleable.SmallTagView_tagVerticalDivider, 0);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_tagHorizontalDivider)) {
-                mHorizontalDivider = array.getDimensionPixelSize(R.styleable.SmallTagView_tagHorizontalDivider, 0);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_tagRadius)) {
-                mTagRadius = array.getDimensionPixelOffset(R.styleable.SmallTagView_tagRadius, 0);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_android_textSize)) {
-                mTagTextSize = array.getDimensionPixelSize(R.styleable.SmallTagView_android_textSize, 0);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_android_textColor)) {
-                mTagTextColor = array.getColor(R.styleable.SmallTagView_android_textColor, Color.parseColor("#000000"));
-            }
-            if (array.hasValue(R.styleable.SmallTagView_textPaddingBottom)) {
-                mTextPaddingBottom = array.getDimensionPixelSize(R.styleable.SmallTagView_textPaddingBottom, 0);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_textPaddingLeft)) {
-                mTextPaddingLeft = array.getDimensionPixelSize(R.styleable.SmallTagView_textPaddingLeft, 0);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_textPaddingRight)) {
-                mTextPaddingRight = array.getDimensionPixelSize(R.styleable.SmallTagView_textPaddingRight, 0);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_textPaddingTop)) {
-                mTextPaddingTop = array.getDimensionPixelSize(R.styleable.SmallTagView_textPaddingTop, 0);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_android_maxLines)) {
-                mMaxLines = array.getInt(R.styleable.SmallTagView_android_maxLines, Integer.MAX_VALUE);
-            }
-            if (array.hasValue(R.styleable.SmallTagView_maxTagNum)) {
-                mMaxTagNum = array.getInt(R.styleable.SmallTagView_maxTagNum, Integer.MAX_VALUE);
-            }
-            array.recycle();
+        mStyle = style;
+        mRenderMode = style.getRenderMode();
+        if (style.isRenderCache()) {
+            mRenderCache = TagRenderCache.getDefault();
+        }
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        mMainGroup = new TagGroup(style);
+        mGroups[0] = mMainGroup;
+        mTagLayout = mMainGroup.layout;
+        mMeasurer = mMainGroup.measurer;
+
+        applyRenderMode();
+        if (mRenderCache != null) {
+            mRenderCache.onConfigurationChanged(getResources().getConfiguration());
         }
+    }
 
-        mTagBackgroundPaint = new TextPaint();
-        mTagBackgroundPaint.setColor(mTagBackground);
-        mTagBackgroundPaint.setAntiAlias(true);
-        mTagBackgroundPaint.setStyle(Paint.Style.FILL);
+    /**
+     * Tag的样式
+     */
+    public TagStyle getTagStyle() {
+        return mStyle;
+    }
 
-        mTextPaint = new TextPaint();
-        mTextPaint.setTextSize(mTagTextSize);
-        mTextPaint.setColor(mTagTextColor);
-        mTextPaint.setAntiAlias(true);
+    /**
+     * 设置绘制方式
+     *
+     * @param renderMode {@link #RENDER_MODE_AUTO}, {@link #RENDER_MODE_SOFTWARE}
+     *                   或者 {@link #RENDER_MODE_HARDWARE}
+     */
+    public void setRenderMode(int renderMode) {
+        if (mRenderMode != renderMode) {
+            mRenderMode = renderMode;
+            applyRenderMode();
+        }
+    }
 
+    public int getRenderMode() {
+        return mRenderMode;
+    }
+
+    /**
+     * 绘制中只使用了 clipRect(默认的INTERSECT)、drawPath、drawText,
+     * API 18 开始硬件加速对这些操作的支持和软件绘制一致，不再需要软件绘制层。
+     */
+    private void applyRenderMode() {
+        boolean software;
+        if (mRenderMode == RENDER_MODE_SOFTWARE) {
+            software = true;
+        } else if (mRenderMode == RENDER_MODE_HARDWARE) {
+            software = false;
+        } else {
+            software = Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2;
+        }
+        setLayerType(software ? View.LAYER_TYPE_SOFTWARE : View.LAYER_TYPE_NONE, null);
     }
 
     /**
@@ -151,64 +259,649 @@ public final class SmallTagView extends View {
      * @param tags
      */
     public void setTags(List<String> tags) {
+        SmallTagMetrics metrics = getMetrics();
+        long start = metrics != null ? metrics.beginPhase(SmallTagMetrics.PHASE_SET_TAGS) : 0;
+        mSnapshot = null;
+        //Tags没有变化时，不需要重新计算和绘制
+        if (mTagLayout.setTags(tags)) {
+            if (mLayout != null) {
+                mLayout.setNeedCalculate(true);
+            }
+            onTagsChanged(mMainGroup, metrics);
+        }
+        if (metrics != null) {
+            metrics.endPhase(SmallTagMetrics.PHASE_SET_TAGS, start);
+        }
+    }
+
+    /**
+     * 以 {@link #setTagDictionary(TagDictionary)} 中的ID设置Tags,只比较ID,
+     * 字典中已经测量过的Tag不再测量。
+     *
+     * @param ids 通过 {@link TagDictionary#intern(String)} 获取的ID
+     */
+    public void setTags(int[] ids) {
+        SmallTagMetrics metrics = getMetrics();
+        long start = metrics != null ? metrics.beginPhase(SmallTagMetrics.PHASE_SET_TAGS) : 0;
+        mSnapshot = null;
+        setTagIds(ids, getDictionaryTable(), metrics);
+        if (metrics != null) {
+            metrics.endPhase(SmallTagMetrics.PHASE_SET_TAGS, start);
+        }
+    }
+
+    /**
+     * 设置字典中的Tags,与上一次设置的是同一个Snapshot或者hash不同时，不需要逐个比较ID。
+     *
+     * @param snapshot 可以来自不同的字典
+     */
+    public void setTags(TagDictionary.Snapshot snapshot) {
+        SmallTagMetrics metrics = getMetrics();
+        long start = metrics != null ? metrics.beginPhase(SmallTagMetrics.PHASE_SET_TAGS) : 0;
+        if (snapshot != mSnapshot && !snapshot.equals(mSnapshot)) {
+            TagDictionary dictionary = snapshot.getDictionary();
+            setTagIds(snapshot.getIds(), dictionary == mDictionary
+                    ? getDictionaryTable() : dictionary.getTable(mStyle), metrics);
+        }
+        mSnapshot = snapshot;
+        if (metrics != null) {
+            metrics.endPhase(SmallTagMetrics.PHASE_SET_TAGS, start);
+        }
+    }
+
+    private void setTagIds(int[] ids, TagTable table, SmallTagMetrics metrics) {
+        if (mTagLayout.setTags(ids, ids.length, table)) {
+            if (mLayout != null) {
+                mLayout.setNeedCalculate(true);
+            }
+            onTagsChanged(mMainGroup, metrics);
+        }
+    }
+
+    private TagTable getDictionaryTable() {
+        if (mDictionaryTable == null) {
+            mDictionaryTable = mDictionary.getTable(mStyle);
+        }
+        return mDictionaryTable;
+    }
 
+    /**
+     * 设置 {@link #setTags(int[])} 使用的字典，默认使用 {@link TagDictionary#getDefault()}
+     *
+     * @param dictionary
+     */
+    public void setTagDictionary(TagDictionary dictionary) {
+        dictionary = dictionary == null ? TagDictionary.getDefault() : dictionary;
+        if (dictionary != mDictionary) {
+            mDictionary = dictionary;
+            mDictionaryTable = null;
+        }
+    }
+
+    /**
+     * 设置预先计算好的Tags,样式一致时不再测量，宽度一致时不再计算换行。
+     * <p>
+     * 样式不一致时(如在创建PrecomputedTags后修改了样式)，等同于 {@link #setTags(List)}；
+     * 与上一次设置的是同一个对象或者内容相同时，什么也不做。
+     *
+     * @param precomputed
+     */
+    public void setTags(PrecomputedTags precomputed) {
+        if (!precomputed.getParams().equals(getPrecomputedTagsParams())) {
+            setTags(precomputed.getTags());
+            return;
+        }
+        SmallTagMetrics metrics = getMetrics();
+        long start = metrics != null ? metrics.beginPhase(SmallTagMetrics.PHASE_SET_TAGS) : 0;
+        if (precomputed != mPrecomputed && !precomputed.equals(mPrecomputed)) {
+            if (mLayout != null) {
+                mLayout.setNeedCalculate(true);
+            }
+            mSnapshot = null;
+            mTagLayout.copyFrom(precomputed.getTagLayout(), true);
+            //自动缩小后的文字大小，同时设置Tag的高度和缩放比例，与复制的排列一致
+            mMainGroup.setTextSize(precomputed.getTextSize());
+            onTagsChanged(mMainGroup, metrics);
+            mPrecomputed = precomputed;
+        }
+        if (metrics != null) {
+            metrics.endPhase(SmallTagMetrics.PHASE_SET_TAGS, start);
+        }
+    }
+
+    /**
+     * 获取当前样式对应的参数，用于在后台线程中创建 {@link PrecomputedTags}
+     */
+    public PrecomputedTags.Params getPrecomputedTagsParams() {
+        PrecomputedTags.Params params = mPrecomputedParams;
+        if (params != null && params.hasPadding(getPaddingLeft(), getPaddingRight())) {
+            return params;
+        }
+        TagStyle style = mStyle;
+        params = new PrecomputedTags.Params(style.getTextPaint(), style.getTextPaddingLeft(),
+                style.getTextPaddingTop(), style.getTextPaddingRight(), style.getTextPaddingBottom(),
+                style.getHorizontalDivider(), style.getVerticalDivider(),
+                getPaddingLeft(), getPaddingRight(), style.getMaxTagNum(), style.getMaxLines(),
+                style.isShowOverflow(), style.shouldEllipsize(), style.getMaxTagWidth(),
+                style.isAutoFit() ? style.getAutoFitMinTextSize() : 0);
+        mPrecomputedParams = params;
+        return params;
+    }
+
+    /**
+     * 添加一组Tags,显示在已有的分组之下，有自己的样式、最大行数和最大个数；
+     * 分组之间的间隔为第一组样式的 {@link TagStyle#getGroupDivider()}。
+     * <p>
+     * 一个View显示多组Tags,代替列表Item中叠放的多个SmallTagView,只进行一次测量和绘制。
+     * 多于一组时不使用绘制缓存。
+     *
+     * @return 分组的位置，通过 {@link #setTags(int, List)} 设置这一组的Tags
+     */
+    public int addTagGroup(@NonNull TagStyle style) {
+        if (mGroupCount == mGroups.length) {
+            TagGroup[] groups = new TagGroup[mGroupCount * 2];
+            System.arraycopy(mGroups, 0, groups, 0, mGroupCount);
+            mGroups = groups;
+        }
+        mGroups[mGroupCount] = new TagGroup(style);
+        onGroupsChanged();
+        return mGroupCount++;
+    }
+
+    /**
+     * 移除 {@link #addTagGroup(TagStyle)} 添加的分组，只保留第一组
+     */
+    public void removeTagGroups() {
+        if (mGroupCount == 1) {
+            return;
+        }
+        for (int i = 1; i < mGroupCount; i++) {
+            mGroups[i] = null;
+        }
+        mGroupCount = 1;
+        onGroupsChanged();
+    }
+
+    public int getTagGroupCount() {
+        return mGroupCount;
+    }
+
+    TagGroup getGroup(int group) {
+        return mGroups[group];
+    }
+
+    /**
+     * 设置某一组的Tags,第0组等同于 {@link #setTags(List)}
+     */
+    public void setTags(int group, List<String> tags) {
+        if (group == 0) {
+            setTags(tags);
+            return;
+        }
+        if (group < 0 || group >= mGroupCount) {
+            throw new IndexOutOfBoundsException("group " + group + ", count " + mGroupCount);
+        }
+        SmallTagMetrics metrics = getMetrics();
+        long start = metrics != null ? metrics.beginPhase(SmallTagMetrics.PHASE_SET_TAGS) : 0;
+        if (mGroups[group].layout.setTags(tags)) {
+            if (mLayout != null) {
+                mLayout.setNeedCalculate(true);
+            }
+            onTagsChanged(mGroups[group], metrics);
+        }
+        if (metrics != null) {
+            metrics.endPhase(SmallTagMetrics.PHASE_SET_TAGS, start);
+        }
+    }
+
+    private void onGroupsChanged() {
+        cancelPress();
+        if (mAccessibilityProvider != null) {
+            mAccessibilityProvider.onTagsChanged();
+        }
         if (mLayout != null) {
             mLayout.setNeedCalculate(true);
         }
-        if (!isTagsSame(tags)) {
-            mTags = tags;
-            if (mTagDrawables == null) {
-                mTagDrawables = new ArrayList<>(mTags.size());
-            } else {
-                mTagDrawables.clear();
-            }
-            int size = Math.min(mMaxTagNum, tags.size());
-            for (int i = 0; i < size; i++) {
-                String tag = tags.get(i);
-                TagDrawable tagDrawable = new TagDrawable(tag, mTextPaint);
-                tagDrawable.setPadding(mTextPaddingLeft,
-                        mTextPaddingTop, mTextPaddingRight,
-                        mTextPaddingBottom)
-                        .setBackground(mTagBackgroundPaint)
-                        .setRadius(mTagRadius)
-                        .commit();
-                mTagDrawables.add(tagDrawable);
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 设置第一组中Tag的样式变体
+     *
+     * @see #setTagVariant(int, int, int)
+     */
+    public void setTagVariant(int position, int variant) {
+        setTagVariant(0, position, variant);
+    }
+
+    /**
+     * 设置Tag的样式变体，即在分组样式的调色板({@link TagStyle.Builder#addVariant(int, int, int, int)})中的下标，
+     * 0为默认样式。不会重新计算换行；软件绘制时只重新绘制这个Tag的区域，硬件加速时在下一帧重新绘制。
+     * <p>
+     * 这一组的Tags变化后，所有Tag恢复默认样式。
+     *
+     * @param position Tag在分组中的位置
+     */
+    public void setTagVariant(int group, int position, int variant) {
+        if (group < 0 || group >= mGroupCount) {
+            throw new IndexOutOfBoundsException("group " + group + ", count " + mGroupCount);
+        }
+        if (mGroups[group].setVariant(position, variant)
+                && position < mGroups[group].layout.getVisibleTagCount()) {
+            invalidateTag(group, position);
+        }
+    }
+
+    public int getTagVariant(int group, int position) {
+        return mGroups[group].getVariant(position);
+    }
+
+    /**
+     * 分组实际使用的文字大小，样式设置了 {@link TagStyle#getAutoFitMinTextSize()} 时测量后可能变小
+     */
+    public int getTagTextSize(int group) {
+        return mGroups[group].getTextSize();
+    }
+
+    /**
+     * 所有分组的Tag恢复默认样式
+     */
+    public void clearTagVariants() {
+        boolean changed = false;
+        for (int i = 0; i < mGroupCount; i++) {
+            changed |= mGroups[i].clearVariants();
+        }
+        if (changed) {
+            invalidate();
+        }
+    }
+
+    private boolean hasTagVariants() {
+        for (int i = 0; i < mGroupCount; i++) {
+            if (mGroups[i].hasVariants()) {
+                return true;
             }
+        }
+        return false;
+    }
+
+    /**
+     * Tags 改变后，判断是需要重新布局还是只需要重新绘制。
+     * 高度(wrap_content时还有宽度)没有变化时只重新绘制。
+     */
+    private void onTagsChanged(TagGroup group, SmallTagMetrics metrics) {
+        if (group == mMainGroup) {
+            mPrecomputed = null;
+        }
+        cancelPress();
+        group.clearVariants();
+        if (mAccessibilityProvider != null) {
+            mAccessibilityProvider.onTagsChanged();
+        }
+        if (isFixedSize()) {
+            //尺寸与Tags无关，只需要重新排列
             if (mLayout != null) {
-                int oldWidth = mLayout.getWidth();
-                int oldHeight = mLayout.getHeight();
-                mLayout.calculate();
-                mLayout.setNeedCalculate(false);
-                if (oldWidth == mLayout.getWidth() && oldHeight == mLayout.getHeight()) {
-                    invalidate();
-                    return;
-                }
+                mLayout.calculate(metrics);
+            }
+            if (metrics != null) {
+                metrics.onRequestLayout(false);
             }
-            requestLayout();
             invalidate();
+            return;
+        }
+        if (mLayout != null) {
+            int oldWidth = mLayout.getWidth();
+            int oldHeight = mLayout.getHeight();
+            //以上一次的MeasureSpec计算，尺寸不变时不需要requestLayout;
+            //父View给出了不同的MeasureSpec时，onMeasure中会重新计算
+            mLayout.calculate(metrics);
+            if (oldWidth == mLayout.getWidth() && oldHeight == mLayout.getHeight()) {
+                if (metrics != null) {
+                    metrics.onRequestLayout(false);
+                }
+                invalidate();
+                return;
+            }
+        }
+        if (metrics != null) {
+            metrics.onRequestLayout(true);
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 设置Tag的点击事件，不创建子View,按坐标查找被点击的Tag
+     *
+     * @param listener
+     */
+    public void setOnTagClickListener(@Nullable OnTagClickListener listener) {
+        mOnTagClickListener = listener;
+    }
+
+    /**
+     * 设置Tag的长按事件
+     *
+     * @param listener
+     */
+    public void setOnTagLongClickListener(@Nullable OnTagLongClickListener listener) {
+        mOnTagLongClickListener = listener;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mOnTagClickListener == null && mOnTagLongClickListener == null) {
+            return super.onTouchEvent(event);
+        }
+        float x = event.getX();
+        float y = event.getY();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                int index = findTag(x, y);
+                if (index < 0) {
+                    return super.onTouchEvent(event);
+                }
+                mDownX = x;
+                mDownY = y;
+                mHasPerformedLongPress = false;
+                mTouchedGroup = mHitGroup;
+                setPressedTag(mHitGroup, index);
+                if (mOnTagLongClickListener != null) {
+                    mLongPressPending = true;
+                    postDelayed(mLongPressRunnable, ViewConfiguration.getLongPressTimeout());
+                }
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (mPressedTag < 0) {
+                    return super.onTouchEvent(event);
+                }
+                if (Math.abs(x - mDownX) > mTouchSlop || Math.abs(y - mDownY) > mTouchSlop
+                        || findTag(x, y) != mPressedTag || mHitGroup != mPressedGroup) {
+                    cancelPress();
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (mPressedTag < 0) {
+                    return super.onTouchEvent(event);
+                }
+                int pressed = mPressedTag;
+                int pressedGroup = mPressedGroup;
+                boolean click = !mHasPerformedLongPress;
+                cancelPress();
+                if (click) {
+                    performTagClick(pressedGroup, pressed);
+                }
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                if (mPressedTag < 0) {
+                    return super.onTouchEvent(event);
+                }
+                cancelPress();
+                return true;
+            default:
+                return mPressedTag >= 0 || super.onTouchEvent(event);
+        }
+    }
+
+    boolean hasTagClickListener() {
+        return mOnTagClickListener != null;
+    }
+
+    boolean hasTagLongClickListener() {
+        return mOnTagLongClickListener != null;
+    }
+
+    /**
+     * 回调Tag的点击事件，触摸和无障碍服务的点击共用
+     *
+     * @return 是否有点击事件
+     */
+    boolean performTagClick(int group, int index) {
+        if (mOnTagClickListener == null) {
+            return false;
+        }
+        mTouchedGroup = group;
+        playSoundEffect(SoundEffectConstants.CLICK);
+        mOnTagClickListener.onTagClick(this, index, mGroups[group].layout.getText(index));
+        return true;
+    }
+
+    /**
+     * 回调Tag的长按事件
+     *
+     * @return 是否处理了长按
+     */
+    boolean performTagLongClick(int group, int index) {
+        if (mOnTagLongClickListener == null) {
+            return false;
+        }
+        mTouchedGroup = group;
+        if (mOnTagLongClickListener.onTagLongClick(this, index, mGroups[group].layout.getText(index))) {
+            performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 只有无障碍服务查询时才会调用，无障碍没有开启时不创建任何节点
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+        if (mAccessibilityProvider == null) {
+            mAccessibilityProvider = new TagAccessibilityProvider(this);
+        }
+        return mAccessibilityProvider;
+    }
+
+    /**
+     * 还没有被无障碍服务查询时为null
+     */
+    TagAccessibilityProvider getTagAccessibilityProvider() {
+        return mAccessibilityProvider;
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        //触摸浏览开启时无障碍服务已经查询过节点
+        if (mAccessibilityProvider != null && mAccessibilityProvider.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    /**
+     * 查找View坐标所在的Tag
+     *
+     * @return Tag在所在分组中的位置，没有时返回-1
+     * @see #getTagGroupAt(float, float)
+     */
+    public int getTagAt(float x, float y) {
+        return findTag(x, y);
+    }
+
+    /**
+     * 查找View坐标所在的Tag的分组
+     *
+     * @return 分组的位置，没有Tag时返回-1
+     */
+    public int getTagGroupAt(float x, float y) {
+        return findTag(x, y) < 0 ? -1 : mHitGroup;
+    }
+
+    /**
+     * 最近一次按下的Tag所在的分组，在 {@link OnTagClickListener}、{@link OnTagLongClickListener}
+     * 中用于区分不同分组的Tag
+     */
+    public int getTouchedTagGroup() {
+        return mTouchedGroup;
+    }
+
+    /**
+     * 查找坐标所在的Tag,分组写入 mHitGroup
+     */
+    private int findTag(float x, float y) {
+        float contentX = x - getPaddingLeft();
+        float contentY = y - getPaddingTop();
+        for (int i = mGroupCount - 1; i >= 0; i--) {
+            TagGroup group = mGroups[i];
+            if (contentY >= group.top) {
+                mHitGroup = i;
+                return group.layout.getTagAt(contentX, contentY - group.top);
+            }
+        }
+        return -1;
+    }
+
+    private void setPressedTag(int group, int index) {
+        if (mPressedTag == index && mPressedGroup == group) {
+            return;
+        }
+        invalidateTag(mPressedGroup, mPressedTag);
+        mPressedTag = index;
+        mPressedGroup = group;
+        invalidateTag(group, index);
+    }
+
+    private void cancelPress() {
+        if (mLongPressPending) {
+            mLongPressPending = false;
+            removeCallbacks(mLongPressRunnable);
+        }
+        setPressedTag(mPressedGroup, -1);
+    }
+
+    /**
+     * 只重新绘制Tag所在的区域。
+     * <p>
+     * 软件绘制(软件绘制层或者没有硬件加速)时只重绘这个区域；硬件加速时脏区域会被忽略，
+     * 整个View都重新记录，这时在下一帧重新绘制。
+     */
+    @SuppressWarnings("deprecation")
+    private void invalidateTag(int group, int index) {
+        if (index < 0 || group >= mGroupCount) {
+            return;
+        }
+        if (getLayerType() == View.LAYER_TYPE_SOFTWARE || !isHardwareAccelerated()) {
+            TagGroup tagGroup = mGroups[group];
+            TagLayout tagLayout = tagGroup.layout;
+            float left = getPaddingLeft() + tagLayout.getX(index);
+            float top = getPaddingTop() + tagGroup.top + tagLayout.getY(index);
+            mDirtyRect.set((int) left, (int) top,
+                    (int) Math.ceil(left + tagLayout.getTagWidth(index)),
+                    (int) Math.ceil(top + tagLayout.getTagHeight()));
+            invalidate(mDirtyRect);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postInvalidateOnAnimation();
         } else {
             invalidate();
         }
     }
 
-    private boolean isTagsSame(List<String> tags) {
+    /**
+     * 设置Tag宽度的测量缓存，默认使用 {@link TagWidthCache#getDefault()}
+     *
+     * @param cache
+     */
+    public void setTagWidthCache(TagWidthCache cache) {
+        for (int i = 0; i < mGroupCount; i++) {
+            mGroups[i].measurer.setCache(cache == null ? TagWidthCache.getDefault() : cache);
+        }
+    }
+
+    /**
+     * 设置过宽的Tag截断结果的缓存，默认使用 {@link TagEllipsizeCache#getDefault()}
+     */
+    public void setTagEllipsizeCache(TagEllipsizeCache cache) {
+        for (int i = 0; i < mGroupCount; i++) {
+            mGroups[i].measurer.setEllipsizeCache(cache == null ? TagEllipsizeCache.getDefault() : cache);
+        }
+    }
 
-        if (tags == null || mTags == null || tags.size() != mTags.size()) {
+    /**
+     * 是否是 {@link #SIZE_MODE_FIXED_LINES}
+     */
+    private boolean isFixedSize() {
+        if (mStyle.getSizeMode() != SIZE_MODE_FIXED_LINES) {
             return false;
-        } else {
-            for (int i = 0; i < tags.size(); i++) {
-                String tag = tags.get(i);
-                String old = mTags.get(i);
-                if (!TextUtils.equals(tag, old)) {
-                    return false;
-                }
+        }
+        for (int i = 0; i < mGroupCount; i++) {
+            if (mGroups[i].style.getMaxLines() == Integer.MAX_VALUE) {
+                return false;
             }
-            return true;
+        }
+        return true;
+    }
+
+    /**
+     * 只对这个View开启性能统计，为null时使用 {@link SmallTagMetrics#install(SmallTagMetrics)} 设置的
+     *
+     * @param metrics
+     */
+    public void setMetrics(@Nullable SmallTagMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    @Nullable
+    private SmallTagMetrics getMetrics() {
+        return mMetrics != null ? mMetrics : SmallTagMetrics.getInstalled();
+    }
+
+    /**
+     * 设置换行结果的缓存，默认使用 {@link TagLayoutCache#getDefault()},为null时不使用缓存
+     *
+     * @param cache
+     */
+    public void setTagLayoutCache(TagLayoutCache cache) {
+        mLayoutCache = cache;
+    }
+
+    TagLayoutCache getTagLayoutCache() {
+        return mLayoutCache;
+    }
+
+    TagWidthCache getTagWidthCache() {
+        return mMeasurer.getCache();
+    }
+
+    /**
+     * 最近一次测量的widthMeasureSpec,没有测量过时为-1(不是合法的MeasureSpec)
+     */
+    int getLastWidthMeasureSpec() {
+        return mLayout != null ? mLayout.widthMeasureSpec : -1;
+    }
+
+    /**
+     * 设置绘制结果的缓存，为null时不使用缓存
+     *
+     * @param cache
+     */
+    public void setTagRenderCache(TagRenderCache cache) {
+        mRenderCache = cache;
+        if (cache != null) {
+            cache.onConfigurationChanged(getResources().getConfiguration());
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (mRenderCache != null) {
+            mRenderCache.onConfigurationChanged(newConfig);
+        }
+        TagWidthStore store = getTagWidthCache().getStore();
+        if (store != null) {
+            store.onConfigurationChanged(newConfig);
         }
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        SmallTagMetrics metrics = getMetrics();
+        long start = metrics != null ? metrics.beginPhase(SmallTagMetrics.PHASE_MEASURE) : 0;
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         if (mLayout == null) {
             mLayout = new Layout(widthMeasureSpec, heightMeasureSpec);
@@ -217,10 +910,14 @@ public final class SmallTagView extends View {
             mLayout.setWidthMeasureSpec(widthMeasureSpec);
 
         }
+        //Tags和MeasureSpec都没有变化时，直接使用上一次的结果
         if (mLayout.isNeedCalculate()) {
-            mLayout.calculate();
+            mLayout.calculate(metrics);
         }
         setMeasuredDimension(mLayout.getWidth(), mLayout.getHeight());
+        if (metrics != null) {
+            metrics.endPhase(SmallTagMetrics.PHASE_MEASURE, start);
+        }
 
     }
 
@@ -228,48 +925,96 @@ public final class SmallTagView extends View {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        if (mTagDrawables == null || mTagDrawables.isEmpty()) {
+        if (getTotalTagCount() == 0) {
             return;
         }
+        SmallTagMetrics metrics = getMetrics();
+        long start = metrics != null ? metrics.beginPhase(SmallTagMetrics.PHASE_DRAW) : 0;
+        //按下的状态和变体不进入绘制缓存，绘制缓存只以第一组Tags作为key
+        if (mRenderCache != null && mPressedTag < 0 && mGroupCount == 1 && !hasTagVariants()
+                && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M || !canvas.isHardwareAccelerated())) {
+            //硬件加速在API 23开始才支持drawPicture
+            canvas.drawPicture(getRenderPicture(metrics));
+        } else {
+            drawTags(canvas);
+        }
+        if (metrics != null) {
+            metrics.endPhase(SmallTagMetrics.PHASE_DRAW, start);
+        }
+    }
+
+    /**
+     * 从缓存中获取绘制结果，没有时录制并放入缓存
+     */
+    private Picture getRenderPicture(SmallTagMetrics metrics) {
+        TagLayout tagLayout = mTagLayout;
+        int[] style = mRenderStyle;
+        TagStyle tagStyle = mStyle;
+        //自动缩小后的文字大小
+        style[0] = mMainGroup.getTextSize();
+        style[1] = tagStyle.getTextColor();
+        style[2] = tagStyle.getTagBackground();
+        style[3] = tagStyle.getTagRadius();
+        style[4] = tagStyle.getTextPaddingLeft();
+        style[5] = tagStyle.getTextPaddingTop();
+        style[6] = tagStyle.getTextPaddingRight();
+        style[7] = tagStyle.getTextPaddingBottom();
+        style[8] = tagStyle.getHorizontalDivider();
+        style[9] = tagStyle.getVerticalDivider();
+        style[10] = getPaddingLeft();
+        style[11] = getPaddingTop();
+        style[12] = getPaddingRight();
+        style[13] = getPaddingBottom();
+        style[14] = tagStyle.isShowOverflow() ? 1 : 0;
+        style[15] = tagStyle.shouldEllipsize() ? 1 : 0;
+        style[16] = tagStyle.getMaxTagWidth();
+        int width = getMeasuredWidth();
+        int height = getMeasuredHeight();
+        int densityDpi = getResources().getDisplayMetrics().densityDpi;
+        Typeface typeface = tagStyle.getTextPaint().getTypeface();
+        Picture picture = mRenderCache.get(tagLayout, style, typeface,
+                width, height, tagStyle.getMaxLines(), densityDpi);
+        if (metrics != null) {
+            metrics.onRenderCache(picture != null);
+        }
+        if (picture == null) {
+            picture = new Picture();
+            drawTags(picture.beginRecording(width, height));
+            picture.endRecording();
+            mRenderCache.put(tagLayout, style, typeface,
+                    width, height, tagStyle.getMaxLines(), densityDpi, picture);
+        }
+        return picture;
+    }
+
+    private void drawTags(Canvas canvas) {
         int cLeft = getPaddingLeft();
         int cRight = getMeasuredWidth() - getPaddingLeft();
         int cTop = getPaddingTop();
         int cBottom = getMeasuredHeight() - getPaddingTop();
 
-        canvas.clipRect(cLeft, cTop, cRight, cBottom, Region.Op.REPLACE);
+        int saveCount = canvas.save();
+        canvas.clipRect(cLeft, cTop, cRight, cBottom);
         canvas.translate(cLeft, cTop);
-
-        canvas.save();
-        int tagHeight = getTextHeight();
-        int currentLine = -1;
-
-        for (TagDrawable drawable : mTagDrawables) {
-            int line = drawable.line;
-            //最大行数的判断
-            if (line > mMaxLines - 1) {
-                break;
-            }
-            // 计算绘制
-            if (line != currentLine) {
-                currentLine = line;
-                canvas.restore();
-                canvas.save();
-                //y方向上的移动
-                int dy = line * (tagHeight + mVerticalDivider);
-                canvas.translate(0, dy);
+        //依次平移到每一组的顶部
+        int groupTop = 0;
+        for (int i = 0; i < mGroupCount; i++) {
+            TagGroup group = mGroups[i];
+            if (group.top != groupTop) {
+                canvas.translate(0, group.top - groupTop);
+                groupTop = group.top;
             }
-            drawable.draw(canvas);
-            int dx = drawable.getWidth() + mHorizontalDivider;
-            canvas.translate(dx, 0);
+            group.draw(canvas, mPressedGroup == i ? mPressedTag : -1, mTagRect, mClipBounds);
         }
-        canvas.restore();
+        canvas.restoreToCount(saveCount);
     }
 
-    private int getTextHeight() {
-        Paint.FontMetrics fontMetrics = mTextPaint.getFontMetrics();
-        int fontHeight = Math.round(fontMetrics.bottom - fontMetrics.top);
-        return (fontHeight + mTextPaddingTop + mTextPaddingBottom);
-
+    private int getTotalTagCount() {
+        int count = 0;
+        for (int i = 0; i < mGroupCount; i++) {
+            count += mGroups[i].layout.getTagCount();
+        }
+        return count;
     }
 
     public int dip2px(float dpValue) {
@@ -298,6 +1043,13 @@ public final class SmallTagView extends View {
          * 为避免多次计算
          */
         private boolean needCalculate = true;
+        /**
+         * 上一次计算时View的padding,padding变化后需要重新计算
+         */
+        private int mPaddingLeft;
+        private int mPaddingTop;
+        private int mPaddingRight;
+        private int mPaddingBottom;
 
 
         public Layout(int widthSpec, int heightSpec) {
@@ -306,15 +1058,23 @@ public final class SmallTagView extends View {
         }
 
         public void setWidthMeasureSpec(int widthMeasureSpec) {
-            this.widthMeasureSpec = widthMeasureSpec;
+            if (this.widthMeasureSpec != widthMeasureSpec) {
+                this.widthMeasureSpec = widthMeasureSpec;
+                needCalculate = true;
+            }
         }
 
         public void setHeightMeasureSpec(int heightMeasureSpec) {
-            this.heightMeasureSpec = heightMeasureSpec;
+            if (this.heightMeasureSpec != heightMeasureSpec) {
+                this.heightMeasureSpec = heightMeasureSpec;
+                needCalculate = true;
+            }
         }
 
         public boolean isNeedCalculate() {
-            return needCalculate;
+            return needCalculate
+                    || mPaddingLeft != getPaddingLeft() || mPaddingTop != getPaddingTop()
+                    || mPaddingRight != getPaddingRight() || mPaddingBottom != getPaddingBottom();
         }
 
         public void setNeedCalculate(boolean needCalculate) {
@@ -324,59 +1084,54 @@ public final class SmallTagView extends View {
         /**
          * 开始计算布局了。
          */
-        public void calculate() {
+        public void calculate(SmallTagMetrics metrics) {
+            needCalculate = false;
+            mPaddingLeft = getPaddingLeft();
+            mPaddingTop = getPaddingTop();
+            mPaddingRight = getPaddingRight();
+            mPaddingBottom = getPaddingBottom();
 
             int widthSize = MeasureSpec.getSize(widthMeasureSpec);
             int heightSize = MeasureSpec.getSize(heightMeasureSpec);
             int widthMode = MeasureSpec.getMode(widthMeasureSpec);
             int heightMode = MeasureSpec.getMode(heightMeasureSpec);
-            int width;
-            int height;
-            if (mTagDrawables == null || mTagDrawables.isEmpty()) {
-                if (widthMode == MeasureSpec.AT_MOST) {
-                    width = 0;
-                } else {
-                    width = widthSize;
-                }
-                if (heightMode == MeasureSpec.AT_MOST) {
-                    height = 0;
-                } else {
-                    height = heightSize;
-                }
-                this.mWidth = width;
-                this.mHeight = height;
+            boolean fixedSize = isFixedSize();
+            if (getTotalTagCount() == 0 && !fixedSize) {
+                this.mWidth = widthMode == MeasureSpec.AT_MOST ? 0 : widthSize;
+                this.mHeight = heightMode == MeasureSpec.AT_MOST ? 0 : heightSize;
                 return;
             }
-            /**
-             * 列
-             */
+            //各组依次竖直排列，没有Tag的分组不占高度
+            int groupDivider = mStyle.getGroupDivider();
             int resultWidth = 0;
-            int line = 0;
-            int row = 0;
-            int useWidth = getPaddingLeft() + getPaddingRight();
-
-            for (TagDrawable tagDrawable : mTagDrawables) {
-                useWidth = useWidth + tagDrawable.width + mHorizontalDivider;
-                //是否需要换行的判断
-                if (useWidth > widthSize && row > 0) {
-                    row = 0;
-                    line++;
-                    useWidth = tagDrawable.width + mHorizontalDivider + getPaddingLeft() + getPaddingRight();
-                    resultWidth = Math.max(resultWidth, useWidth);
-                } else {
-                    resultWidth = Math.max(resultWidth, useWidth);
+            int contentHeight = 0;
+            for (int i = 0; i < mGroupCount; i++) {
+                TagGroup group = mGroups[i];
+                layoutGroup(group, widthSize, metrics);
+                int groupHeight = fixedSize ? group.getFixedHeight() : group.getHeight();
+                if (groupHeight == 0) {
+                    group.top = contentHeight;
+                    continue;
+                }
+                if (contentHeight > 0) {
+                    contentHeight += groupDivider;
                 }
-                tagDrawable.line = line;
-                tagDrawable.row = row;
-                row++;
+                group.top = contentHeight;
+                contentHeight += groupHeight;
+                resultWidth = Math.max(resultWidth, group.layout.getResultWidth());
+            }
+            int resultHeight = contentHeight + mPaddingTop + mPaddingBottom;
+            if (fixedSize) {
+                //只与样式、可用宽度和maxLines有关
+                mWidth = widthSize;
+                mHeight = heightMode == MeasureSpec.EXACTLY ? heightSize
+                        : heightMode == MeasureSpec.AT_MOST ? Math.min(resultHeight, heightSize) : resultHeight;
+                return;
             }
-            int tagHeight = getTextHeight();
-            int resultLine = Math.min(line + 1, mMaxLines);
-            int resultHeight = tagHeight * resultLine + mVerticalDivider * (resultLine - 1) + getPaddingTop() + getPaddingBottom();
             if (widthMode == MeasureSpec.EXACTLY) {
                 mWidth = widthSize;
             } else {
-                mWidth = Math.min(widthSize, resultWidth) + mHorizontalDivider;
+                mWidth = Math.min(widthSize, resultWidth) + mStyle.getHorizontalDivider();
             }
             if (heightMode == MeasureSpec.EXACTLY) {
                 mHeight = heightSize;
@@ -385,109 +1140,121 @@ public final class SmallTagView extends View {
             }
         }
 
-        public int getWidth() {
-            return mWidth;
-        }
-
-
-        public int getHeight() {
-            return mHeight;
-        }
-
-    }
-
-    /**
-     * 单个Tag Drawable封装
-     */
-    private static class TagDrawable extends Drawable {
-
-        private final String text;
-        private final Paint textContentPain;
-        private Paint backgroundPaint;
-        private RectF fBounds;
-        private int leftPadding;
-        private int topPadding;
-        private int rightPadding;
-        private int bottomPadding;
-        private int radius;
-        private int width;
-        private int height;
-        /**
-         * 所处的行数
-         */
-        public int line = 0;
         /**
-         * 所处的列数
+         * 以分组的样式计算换行，参数和Tags都没有变化时不计算
          */
-        public int row = 0;
-
-        public TagDrawable(String text, Paint textPaint) {
-            this.text = text;
-            this.textContentPain = textPaint;
-        }
-
-        public TagDrawable setBackground(Paint paint) {
-            this.backgroundPaint = paint;
-            return this;
-        }
-
-        public TagDrawable setRadius(int radius) {
-            this.radius = radius;
-            return this;
+        private void layoutGroup(TagGroup group, int widthSize, SmallTagMetrics metrics) {
+            TagLayout tagLayout = group.layout;
+            TagStyle style = group.style;
+            tagLayout.setPadding(mPaddingLeft, 0, mPaddingRight, 0);
+            tagLayout.setDivider(style.getHorizontalDivider(), style.getVerticalDivider());
+            tagLayout.setMaxLines(style.getMaxLines());
+            //上一次缩小后的文字大小，参数和Tags都没有变化时沿用
+            group.applyTextSize();
+            if (tagLayout.getTagCount() == 0) {
+                //清空之前的排列结果，不进入缓存
+                tagLayout.layout(widthSize);
+                return;
+            }
+            if (tagLayout.needsLayout(widthSize)) {
+                TagWidthCache cache = metrics != null ? group.measurer.getCache() : null;
+                //以前后的计数之差作为这次排列中宽度缓存的命中次数
+                int hits = cache != null ? cache.hitCount() : 0;
+                int misses = cache != null ? cache.missCount() : 0;
+                if (style.isAutoFit()) {
+                    layoutToFit(group, widthSize, metrics);
+                } else {
+                    layoutWithCache(group, widthSize, metrics);
+                }
+                if (metrics != null) {
+                    metrics.onTruncated(tagLayout.getOverflowCount());
+                    metrics.onWidthCache(cache.hitCount() - hits, cache.missCount() - misses);
+                }
+            }
         }
 
-
-        public TagDrawable setPadding(int leftPadding, int topPadding, int rightPadding, int bottomPaddding) {
-            this.leftPadding = leftPadding;
-            this.topPadding = topPadding;
-            this.rightPadding = rightPadding;
-            this.bottomPadding = bottomPaddding;
-            return this;
+        /**
+         * 缩小文字使所有的Tag排列在maxLines行内：每个Tag只测量一次，之后二分查找文字大小，只计算换行。
+         * 文字大小与宽度有关，不使用 {@link TagLayoutCache}
+         */
+        private void layoutToFit(TagGroup group, int widthSize, SmallTagMetrics metrics) {
+            TagLayout tagLayout = group.layout;
+            TagStyle style = group.style;
+            int textSize = tagLayout.layoutToFit(widthSize, style.getTextSize(),
+                    style.getAutoFitMinTextSize(),
+                    style.getTextPaddingLeft() + style.getTextPaddingRight());
+            int measureCount = tagLayout.getMeasureCount();
+            //Tag的高度随文字缩小
+            group.setTextSize(textSize);
+            if (tagLayout.needsLayout(widthSize)) {
+                tagLayout.layout(widthSize);
+                measureCount += tagLayout.getMeasureCount();
+            }
+            if (metrics != null) {
+                metrics.onMeasured(measureCount);
+            }
         }
 
-        public TagDrawable commit() {
-            Paint.FontMetrics fontMetrics = textContentPain.getFontMetrics();
-            int fontHeight = Math.round(fontMetrics.bottom - fontMetrics.top);
-            width = Math.round(textContentPain.measureText(text)) + leftPadding + rightPadding;
-            height = fontHeight + topPadding + bottomPadding;
-            setBounds(0, 0, width, height);
-            fBounds = new RectF(getBounds());
-            return this;
+        /**
+         * 先在 {@link TagLayoutCache} 中查找相同Tags以相同宽度计算过的结果，没有时再计算换行
+         */
+        private void layoutWithCache(TagGroup group, int widthSize, SmallTagMetrics metrics) {
+            TagLayoutCache cache = mLayoutCache;
+            TagLayout tagLayout = group.layout;
+            int horizontalPadding = mPaddingLeft + mPaddingRight;
+            if (cache != null) {
+                boolean hit = cache.restore(tagLayout, group.style, widthMeasureSpec, horizontalPadding,
+                        widthSize);
+                if (metrics != null) {
+                    metrics.onLayoutCache(hit);
+                }
+                if (hit) {
+                    return;
+                }
+            }
+            tagLayout.layout(widthSize);
+            if (metrics != null) {
+                metrics.onMeasured(tagLayout.getMeasureCount());
+            }
+            if (cache != null) {
+                cache.put(tagLayout, group.style, widthMeasureSpec, horizontalPadding);
+            }
         }
 
-
         public int getWidth() {
-            return width;
+            return mWidth;
         }
 
+
         public int getHeight() {
-            return height;
+            return mHeight;
         }
 
+    }
 
-        @Override
-        public void draw(Canvas canvas) {
-            canvas.drawRoundRect(fBounds, radius, radius, backgroundPaint);
-            canvas.drawText(text, leftPadding,
-                    textContentPain.getTextSize() + topPadding, textContentPain);
-        }
 
-        @Override
-        public void setAlpha(int alpha) {
-            textContentPain.setAlpha(alpha);
-            backgroundPaint.setAlpha(alpha);
-        }
 
-        @Override
-        public void setColorFilter(@Nullable ColorFilter colorFilter) {
-            textContentPain.setColorFilter(colorFilter);
-        }
+    /**
+     * Tag的点击事件
+     */
+    public interface OnTagClickListener {
 
-        @Override
-        public int getOpacity() {
-            return PixelFormat.TRANSLUCENT;
-        }
+        /**
+         * @param view     SmallTagView
+         * @param position Tag的位置
+         * @param tag      Tag的文字
+         */
+        void onTagClick(SmallTagView view, int position, String tag);
     }
 
+    /**
+     * Tag的长按事件
+     */
+    public interface OnTagLongClickListener {
 
+        /**
+         * @return 是否消费了长按，消费后松开时不再触发点击
+         */
+        boolean onTagLongClick(SmallTagView view, int position, String tag);
+    }
 }
@@ -0,0 +1,292 @@
+package com.cugkuan.smalltag;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+
+/**
+ * 为每个Tag提供虚拟的无障碍节点，TalkBack可以逐个朗读和点击Tag,不需要为每个Tag创建子View。
+ * <p>
+ * 由 {@link SmallTagView#getAccessibilityNodeProvider()} 在无障碍服务第一次查询时创建，之后重新设置Tags也复用；
+ * 节点在查询时根据换行结果(位置、宽度)生成，不保存。无障碍没有开启时不会创建任何对象。
+ * <p>
+ * 虚拟节点的ID为 (分组 << 16) | Tag在分组中的位置。
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+final class TagAccessibilityProvider extends AccessibilityNodeProvider {
+
+    /**
+     * View自身的节点，同 AccessibilityNodeProvider.HOST_VIEW_ID
+     */
+    static final int HOST_ID = View.NO_ID;
+
+    private static final int INVALID_ID = Integer.MIN_VALUE;
+
+    private static final String TAG_CLASS_NAME = "android.widget.Button";
+
+    private final SmallTagView mHost;
+
+    private final AccessibilityManager mManager;
+
+    private final Rect mTempRect = new Rect();
+
+    private final int[] mTempLocation = new int[2];
+
+    /**
+     * 获得无障碍焦点和触摸浏览中的Tag
+     */
+    private int mFocusedId = INVALID_ID;
+    private int mHoveredId = INVALID_ID;
+
+    /**
+     * 创建了的节点个数
+     */
+    private int mNodeCount;
+
+    TagAccessibilityProvider(SmallTagView host) {
+        this.mHost = host;
+        this.mManager = (AccessibilityManager) host.getContext()
+                .getSystemService(Context.ACCESSIBILITY_SERVICE);
+    }
+
+    static int toVirtualId(int group, int index) {
+        return group << 16 | index;
+    }
+
+    int getNodeCount() {
+        return mNodeCount;
+    }
+
+    @Override
+    public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+        if (virtualViewId == HOST_ID) {
+            return createHostNode();
+        }
+        int group = virtualViewId >>> 16;
+        int index = virtualViewId & 0xFFFF;
+        if (!isVisibleTag(group, index)) {
+            return null;
+        }
+        TagLayout tagLayout = mHost.getGroup(group).layout;
+        AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(mHost, virtualViewId);
+        mNodeCount++;
+        info.setParent(mHost);
+        info.setPackageName(mHost.getContext().getPackageName());
+        info.setClassName(TAG_CLASS_NAME);
+        //截断的Tag也朗读完整的文字
+        info.setText(tagLayout.getText(index));
+        info.setEnabled(mHost.isEnabled());
+        info.setVisibleToUser(mHost.isShown());
+        if (mHost.hasTagClickListener()) {
+            info.setClickable(true);
+            addAction(info, AccessibilityNodeInfo.ACTION_CLICK);
+        }
+        if (mHost.hasTagLongClickListener()) {
+            info.setLongClickable(true);
+            addAction(info, AccessibilityNodeInfo.ACTION_LONG_CLICK);
+        }
+        if (mFocusedId == virtualViewId) {
+            info.setAccessibilityFocused(true);
+            addAction(info, AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+        } else {
+            addAction(info, AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+        }
+        Rect rect = getTagBounds(group, index, mTempRect);
+        info.setBoundsInParent(rect);
+        mHost.getLocationOnScreen(mTempLocation);
+        rect.offset(mTempLocation[0], mTempLocation[1]);
+        info.setBoundsInScreen(rect);
+        return info;
+    }
+
+    /**
+     * API 21开始使用 {@link AccessibilityNodeInfo.AccessibilityAction},之前使用int的action
+     */
+    @SuppressWarnings("deprecation")
+    private static void addAction(AccessibilityNodeInfo info, int action) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            info.addAction(toAccessibilityAction(action));
+        } else {
+            info.addAction(action);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static AccessibilityNodeInfo.AccessibilityAction toAccessibilityAction(int action) {
+        switch (action) {
+            case AccessibilityNodeInfo.ACTION_CLICK:
+                return AccessibilityNodeInfo.AccessibilityAction.ACTION_CLICK;
+            case AccessibilityNodeInfo.ACTION_LONG_CLICK:
+                return AccessibilityNodeInfo.AccessibilityAction.ACTION_LONG_CLICK;
+            case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+                return AccessibilityNodeInfo.AccessibilityAction.ACTION_ACCESSIBILITY_FOCUS;
+            case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+                return AccessibilityNodeInfo.AccessibilityAction.ACTION_CLEAR_ACCESSIBILITY_FOCUS;
+            default:
+                throw new IllegalArgumentException("action " + action);
+        }
+    }
+
+    private AccessibilityNodeInfo createHostNode() {
+        AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(mHost);
+        mNodeCount++;
+        mHost.onInitializeAccessibilityNodeInfo(info);
+        for (int group = 0, groupCount = mHost.getTagGroupCount(); group < groupCount; group++) {
+            TagLayout tagLayout = mHost.getGroup(group).layout;
+            for (int i = 0, count = tagLayout.getVisibleTagCount(); i < count; i++) {
+                info.addChild(mHost, toVirtualId(group, i));
+            }
+        }
+        return info;
+    }
+
+    @Override
+    public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+        if (virtualViewId == HOST_ID) {
+            return mHost.performAccessibilityAction(action, arguments);
+        }
+        int group = virtualViewId >>> 16;
+        int index = virtualViewId & 0xFFFF;
+        if (!isVisibleTag(group, index)) {
+            return false;
+        }
+        switch (action) {
+            case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+                if (mFocusedId == virtualViewId) {
+                    return false;
+                }
+                if (mFocusedId != INVALID_ID) {
+                    sendEvent(mFocusedId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                }
+                mFocusedId = virtualViewId;
+                mHost.invalidate();
+                sendEvent(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+                return true;
+            case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+                if (mFocusedId != virtualViewId) {
+                    return false;
+                }
+                mFocusedId = INVALID_ID;
+                mHost.invalidate();
+                sendEvent(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                return true;
+            case AccessibilityNodeInfo.ACTION_CLICK:
+                if (mHost.performTagClick(group, index)) {
+                    sendEvent(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                    return true;
+                }
+                return false;
+            case AccessibilityNodeInfo.ACTION_LONG_CLICK:
+                if (mHost.performTagLongClick(group, index)) {
+                    sendEvent(virtualViewId, AccessibilityEvent.TYPE_VIEW_LONG_CLICKED);
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 触摸浏览时，手指所在的Tag发送进入和离开的事件
+     *
+     * @return 是否处理了事件
+     */
+    boolean dispatchHoverEvent(MotionEvent event) {
+        if (!mManager.isEnabled() || !mManager.isTouchExplorationEnabled()) {
+            return false;
+        }
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_HOVER_ENTER:
+            case MotionEvent.ACTION_HOVER_MOVE:
+                int id = findTag(event.getX(), event.getY());
+                setHoveredId(id);
+                return id != INVALID_ID;
+            case MotionEvent.ACTION_HOVER_EXIT:
+                if (mHoveredId == INVALID_ID) {
+                    return false;
+                }
+                setHoveredId(INVALID_ID);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Tags变化后，之前的虚拟节点不再有效，通知无障碍服务重新查询
+     */
+    void onTagsChanged() {
+        mFocusedId = INVALID_ID;
+        mHoveredId = INVALID_ID;
+        mHost.sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+    }
+
+    private void setHoveredId(int id) {
+        if (mHoveredId == id) {
+            return;
+        }
+        int previous = mHoveredId;
+        mHoveredId = id;
+        if (id != INVALID_ID) {
+            sendEvent(id, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+        }
+        if (previous != INVALID_ID) {
+            sendEvent(previous, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+        }
+    }
+
+    private int findTag(float x, float y) {
+        int index = mHost.getTagAt(x, y);
+        return index < 0 ? INVALID_ID : toVirtualId(mHost.getTagGroupAt(x, y), index);
+    }
+
+    private boolean isVisibleTag(int group, int index) {
+        return group < mHost.getTagGroupCount()
+                && index < mHost.getGroup(group).layout.getVisibleTagCount();
+    }
+
+    /**
+     * Tag在View中的位置
+     */
+    private Rect getTagBounds(int group, int index, Rect out) {
+        TagGroup tagGroup = mHost.getGroup(group);
+        TagLayout tagLayout = tagGroup.layout;
+        int left = mHost.getPaddingLeft() + (int) tagLayout.getX(index);
+        int top = mHost.getPaddingTop() + tagGroup.top + (int) tagLayout.getY(index);
+        out.set(left, top, left + tagLayout.getTagWidth(index), top + tagLayout.getTagHeight());
+        return out;
+    }
+
+    private void sendEvent(int virtualViewId, int eventType) {
+        if (!mManager.isEnabled()) {
+            return;
+        }
+        ViewParent parent = mHost.getParent();
+        int group = virtualViewId >>> 16;
+        int index = virtualViewId & 0xFFFF;
+        //分组或者Tags已经变化
+        if (parent == null || !isVisibleTag(group, index)) {
+            return;
+        }
+        AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+        event.setPackageName(mHost.getContext().getPackageName());
+        event.setClassName(TAG_CLASS_NAME);
+        event.setEnabled(mHost.isEnabled());
+        event.getText().add(mHost.getGroup(group).layout.getText(index));
+        event.setSource(mHost, virtualViewId);
+        parent.requestSendAccessibilityEvent(mHost, event);
+    }
+}
@@ -0,0 +1,214 @@
+package com.cugkuan.smalltag;
+
+import android.support.annotation.NonNull;
+
+import com.cugkuan.smalltag.layout.TagMeasurer;
+import com.cugkuan.smalltag.layout.TagTable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.WeakHashMap;
+
+/**
+ * Tag的字典，每个不同的Tag文字对应一个固定的int ID,并按 {@link TagStyle} 缓存每个ID测量后的宽度。
+ * <p>
+ * 通过 {@link SmallTagView#setTags(int[])} 或 {@link SmallTagView#setTags(Snapshot)} 设置时,
+ * 只比较ID,不比较文字；字典中已经测量过的Tag不再测量。
+ * <p>
+ * {@link #intern(String)} 和 {@link #getTag(int)} 可以在任意线程中调用，
+ * 宽度的测量使用 {@link TagStyle} 共享的Paint,只在UI线程中进行。
+ */
+public final class TagDictionary {
+
+    private static volatile TagDictionary sDefault;
+
+    private final HashMap<String, Integer> mIds = new HashMap<>();
+
+    private String[] mTags = new String[16];
+
+    private int mSize;
+
+    /**
+     * 每种样式下Tag的宽度
+     */
+    private final WeakHashMap<TagStyle, StyleTable> mTables = new WeakHashMap<>();
+
+    public static TagDictionary getDefault() {
+        if (sDefault == null) {
+            synchronized (TagDictionary.class) {
+                if (sDefault == null) {
+                    sDefault = new TagDictionary();
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 获取Tag的ID,第一次出现的Tag分配一个新的ID
+     *
+     * @return 从0开始的ID,同一个字典中相同的Tag总是相同的ID
+     */
+    public synchronized int intern(@NonNull String tag) {
+        Integer id = mIds.get(tag);
+        if (id != null) {
+            return id;
+        }
+        if (mSize == mTags.length) {
+            mTags = Arrays.copyOf(mTags, mSize * 2);
+        }
+        mTags[mSize] = tag;
+        mIds.put(tag, mSize);
+        return mSize++;
+    }
+
+    /**
+     * ID对应的Tag
+     *
+     * @throws IndexOutOfBoundsException ID不是通过 {@link #intern(String)} 获取的
+     */
+    public synchronized String getTag(int id) {
+        if (id < 0 || id >= mSize) {
+            throw new IndexOutOfBoundsException("unknown tag id " + id);
+        }
+        return mTags[id];
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * 创建不可变的ID列表，ids被复制
+     */
+    public Snapshot snapshot(@NonNull int... ids) {
+        synchronized (this) {
+            for (int id : ids) {
+                if (id < 0 || id >= mSize) {
+                    throw new IndexOutOfBoundsException("unknown tag id " + id);
+                }
+            }
+        }
+        return new Snapshot(this, ids.clone());
+    }
+
+    /**
+     * 将Tags转换为ID后创建 {@link Snapshot}
+     */
+    public Snapshot snapshot(@NonNull List<String> tags) {
+        int[] ids = new int[tags.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = intern(tags.get(i));
+        }
+        return new Snapshot(this, ids);
+    }
+
+    /**
+     * 样式对应的宽度表，共享同一个 {@link TagStyle} 的View共用，只在UI线程中使用
+     */
+    synchronized TagTable getTable(TagStyle style) {
+        StyleTable table = mTables.get(style);
+        if (table == null) {
+            table = new StyleTable(this);
+            mTables.put(style, table);
+        }
+        return table;
+    }
+
+    /**
+     * 不可变的Tag ID列表，创建时计算hash,比较时先比较hash。
+     */
+    public static final class Snapshot {
+
+        private final TagDictionary mDictionary;
+
+        private final int[] mIds;
+
+        private final int mHash;
+
+        private Snapshot(TagDictionary dictionary, int[] ids) {
+            this.mDictionary = dictionary;
+            this.mIds = ids;
+            this.mHash = Arrays.hashCode(ids);
+        }
+
+        public TagDictionary getDictionary() {
+            return mDictionary;
+        }
+
+        public int size() {
+            return mIds.length;
+        }
+
+        public int getId(int index) {
+            return mIds[index];
+        }
+
+        public String getTag(int index) {
+            return mDictionary.getTag(mIds[index]);
+        }
+
+        int[] getIds() {
+            return mIds;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Snapshot that = (Snapshot) o;
+            return mHash == that.mHash
+                    && mDictionary == that.mDictionary
+                    && Arrays.equals(mIds, that.mIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+
+    /**
+     * 一种样式下每个ID的宽度，-1表示还没有测量。
+     * 没有测量过的ID通过排列的View的 {@link PaintTagMeasurer} 测量，使用View设置的 {@link TagWidthCache}。
+     * <p>
+     * 不加锁，只能在UI线程中使用。
+     */
+    private static final class StyleTable implements TagTable {
+
+        private final TagDictionary mDictionary;
+
+        private int[] mWidths = new int[0];
+
+        StyleTable(TagDictionary dictionary) {
+            this.mDictionary = dictionary;
+        }
+
+        @Override
+        public String getText(int id) {
+            return mDictionary.getTag(id);
+        }
+
+        @Override
+        public int measure(int id, TagMeasurer measurer) {
+            int[] widths = mWidths;
+            if (id < widths.length && widths[id] >= 0) {
+                return widths[id];
+            }
+            if (id >= widths.length) {
+                int oldLength = widths.length;
+                widths = Arrays.copyOf(widths, Math.max(id + 1, Math.max(16, oldLength * 2)));
+                Arrays.fill(widths, oldLength, widths.length, -1);
+                mWidths = widths;
+            }
+            int width = measurer.measure(getText(id));
+            widths[id] = width;
+            return width;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Paint;
+
+
+/**
+ * 过宽的Tag截断结果的缓存，进程内所有的SmallTagView共享。
+ * <p>
+ * 以(文字, 最大宽度, 文字大小, 字体, 字间距, 左右内边距)作为key,按LRU淘汰；
+ * 列表中复用的Item再次以相同的宽度显示相同的Tag时，不再查找截断的位置。
+ * <p>
+ * 截断的位置通过对前缀宽度的二分查找确定，每次查找测量 log(文字长度) 次。
+ */
+public final class TagEllipsizeCache {
+
+    /**
+     * 默认缓存的条数，过宽的Tag通常较少
+     */
+    public static final int DEFAULT_MAX_SIZE = 128;
+
+    /**
+     * 省略号
+     */
+    static final String ELLIPSIS = "…";
+
+    private static volatile TagEllipsizeCache sDefault;
+
+    private final LruMap<PaintTextKey, Entry> mMap;
+    /**
+     * 查找时复用的Key，避免每次查找都创建对象,只在锁内使用。
+     */
+    private final PaintTextKey mLookupKey = new PaintTextKey();
+
+    public TagEllipsizeCache(int maxSize) {
+        this.mMap = new LruMap<>(maxSize);
+    }
+
+    /**
+     * 进程内共享的缓存
+     */
+    public static TagEllipsizeCache getDefault() {
+        if (sDefault == null) {
+            synchronized (TagEllipsizeCache.class) {
+                if (sDefault == null) {
+                    sDefault = new TagEllipsizeCache(DEFAULT_MAX_SIZE);
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 截断文字，末尾加上省略号，使Tag的宽度(文字宽度 + 左右内边距)不超过maxWidth。
+     * 只有省略号也放不下时，结果只有省略号，宽度超过maxWidth。
+     *
+     * @param out 截断后的文字写入 out[0]
+     * @return 截断后Tag的宽度
+     */
+    public int ellipsize(String text, int maxWidth, Paint paint, int paddingLeft, int paddingRight,
+                         String[] out) {
+        synchronized (this) {
+            mLookupKey.set(text, maxWidth, paint, paddingLeft, paddingRight);
+            Entry entry = mMap.get(mLookupKey);
+            mLookupKey.clear();
+            if (entry != null) {
+                out[0] = entry.text;
+                return entry.width;
+            }
+        }
+        Entry entry = breakText(text, maxWidth - paddingLeft - paddingRight, paint);
+        entry.width += paddingLeft + paddingRight;
+        PaintTextKey key = new PaintTextKey();
+        key.set(text, maxWidth, paint, paddingLeft, paddingRight);
+        synchronized (this) {
+            mMap.put(key, entry);
+        }
+        out[0] = entry.text;
+        return entry.width;
+    }
+
+    /**
+     * 二分查找加上省略号后宽度不超过maxTextWidth的最长前缀，不拆开代理对
+     */
+    private static Entry breakText(String text, int maxTextWidth, Paint paint) {
+        float ellipsisWidth = paint.measureText(ELLIPSIS);
+        int low = 0;
+        int high = text.length() - 1;
+        int best = 0;
+        float bestWidth = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            float width = paint.measureText(text, 0, mid);
+            if (Math.ceil(width + ellipsisWidth) <= maxTextWidth) {
+                best = mid;
+                bestWidth = width;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (best > 0 && Character.isHighSurrogate(text.charAt(best - 1))) {
+            best--;
+            bestWidth = paint.measureText(text, 0, best);
+        }
+        Entry entry = new Entry();
+        entry.text = text.substring(0, best) + ELLIPSIS;
+        entry.width = (int) Math.ceil(bestWidth + ellipsisWidth);
+        return entry;
+    }
+
+    /**
+     * 修改缓存的容量
+     */
+    public synchronized void resize(int maxSize) {
+        mMap.resize(maxSize);
+    }
+
+    public synchronized void evictAll() {
+        mMap.clear();
+    }
+
+    public synchronized int size() {
+        return mMap.size();
+    }
+
+    public synchronized int maxSize() {
+        return mMap.maxSize();
+    }
+
+    public synchronized int hitCount() {
+        return mMap.hitCount();
+    }
+
+    public synchronized int missCount() {
+        return mMap.missCount();
+    }
+
+    public synchronized void resetStats() {
+        mMap.resetStats();
+    }
+
+    /**
+     * 截断后的文字和Tag的宽度
+     */
+    private static final class Entry {
+
+        private String text;
+        private int width;
+    }
+}
@@ -0,0 +1,362 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.text.TextPaint;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+import java.util.Arrays;
+
+/**
+ * SmallTagView中的一组Tags,有自己的样式、最大行数和最大个数，在View中竖直排列。
+ * <p>
+ * 多组Tags由同一个View测量和绘制，代替列表Item中叠放的多个SmallTagView。
+ */
+final class TagGroup {
+
+    final TagStyle style;
+
+    /**
+     * Tags的文字、宽度和位置，左右padding为View的padding,上下padding为0
+     */
+    final TagLayout layout;
+
+    final PaintTagMeasurer measurer;
+
+    /**
+     * 在内容区域(去掉View padding)中的顶部位置，测量时计算
+     */
+    int top;
+
+    /**
+     * 所有Tag背景组成的Path,排列结果、圆角和高度不变时复用
+     */
+    private final Path mBackgroundPath = new Path();
+    private int mBackgroundGeneration = -1;
+    private int mBackgroundRadius;
+    private int mBackgroundTagHeight;
+
+    /**
+     * 每个Tag在 {@link TagStyle} 调色板中的下标，第一次设置非默认的变体时创建
+     */
+    private int[] mVariants;
+    /**
+     * 变体不为0的Tag个数，为0时按默认样式绘制
+     */
+    private int mVariantTagCount;
+
+    /**
+     * 排列和绘制使用的文字大小，{@link TagStyle#isAutoFit()} 时可能小于样式的文字大小
+     */
+    private int mTextSize;
+    /**
+     * 文字缩小后绘制使用的Paint,按变体存放，不修改样式中共享的Paint
+     */
+    private TextPaint[] mFitTextPaints;
+
+    TagGroup(TagStyle style) {
+        this.style = style;
+        this.measurer = new PaintTagMeasurer(style.getTextPaint(), style.getTextPaddingLeft(),
+                style.getTextPaddingRight(), TagWidthCache.getDefault());
+        this.layout = new TagLayout(measurer);
+        layout.setMaxTagNum(style.getMaxTagNum());
+        layout.setShowOverflow(style.isShowOverflow());
+        if (style.shouldEllipsize()) {
+            layout.setEllipsizer(measurer);
+            layout.setMaxTagWidth(style.getMaxTagWidth());
+        }
+        mTextSize = style.getTextSize();
+    }
+
+    int getTextSize() {
+        return mTextSize;
+    }
+
+    /**
+     * 修改排列和绘制使用的文字大小，同时修改layout的Tag高度和文字缩放比例
+     */
+    void setTextSize(int textSize) {
+        mTextSize = textSize;
+        applyTextSize();
+    }
+
+    /**
+     * 以当前的文字大小设置layout的Tag高度和文字缩放比例
+     */
+    void applyTextSize() {
+        layout.setTagHeight(style.getTagHeight(mTextSize));
+        layout.setTextScale((float) mTextSize / style.getTextSize(),
+                style.getTextPaddingLeft() + style.getTextPaddingRight());
+    }
+
+    /**
+     * 绘制文字的Paint,文字缩小后使用这一组自己的Paint
+     */
+    private TextPaint getTextPaint(int variant) {
+        TextPaint paint = style.getTextPaint(variant);
+        if (mTextSize == style.getTextSize()) {
+            return paint;
+        }
+        if (mFitTextPaints == null) {
+            mFitTextPaints = new TextPaint[style.getVariantCount()];
+        }
+        TextPaint fitPaint = mFitTextPaints[variant];
+        if (fitPaint == null) {
+            fitPaint = new TextPaint(paint);
+            fitPaint.setColor(paint.getColor());
+            mFitTextPaints[variant] = fitPaint;
+        }
+        if (fitPaint.getTextSize() != mTextSize) {
+            fitPaint.setTextSize(mTextSize);
+        }
+        return fitPaint;
+    }
+
+    /**
+     * 排列的高度，没有Tag时为0
+     */
+    int getHeight() {
+        int lines = layout.getVisibleLineCount();
+        if (lines == 0) {
+            return 0;
+        }
+        return layout.getTagHeight() * lines + style.getVerticalDivider() * (lines - 1);
+    }
+
+    /**
+     * maxLines行Tag的高度，用于 {@link SmallTagView#SIZE_MODE_FIXED_LINES}
+     */
+    int getFixedHeight() {
+        int maxLines = style.getMaxLines();
+        return style.getTagHeight() * maxLines + style.getVerticalDivider() * (maxLines - 1);
+    }
+
+    /**
+     * 设置Tag在调色板中的下标
+     *
+     * @return 是否有变化
+     */
+    boolean setVariant(int index, int variant) {
+        if (index < 0 || index >= layout.getTagCount()) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + layout.getTagCount());
+        }
+        if (variant < 0 || variant >= style.getVariantCount()) {
+            throw new IllegalArgumentException("variant " + variant + ", count " + style.getVariantCount());
+        }
+        int old = getVariant(index);
+        if (old == variant) {
+            return false;
+        }
+        if (mVariants == null || mVariants.length <= index) {
+            int[] variants = new int[Math.max(layout.getTagCount(), 8)];
+            if (mVariants != null) {
+                System.arraycopy(mVariants, 0, variants, 0, mVariants.length);
+            }
+            mVariants = variants;
+        }
+        mVariants[index] = variant;
+        mVariantTagCount += old == 0 ? 1 : variant == 0 ? -1 : 0;
+        return true;
+    }
+
+    int getVariant(int index) {
+        return mVariants != null && index < mVariants.length ? mVariants[index] : 0;
+    }
+
+    boolean hasVariants() {
+        return mVariantTagCount > 0;
+    }
+
+    /**
+     * 所有Tag恢复默认样式，保留数组复用
+     *
+     * @return 是否有变化
+     */
+    boolean clearVariants() {
+        if (mVariantTagCount == 0) {
+            return false;
+        }
+        Arrays.fill(mVariants, 0);
+        mVariantTagCount = 0;
+        return true;
+    }
+
+    /**
+     * 以这一组的左上角为原点绘制，软件绘制时只绘制与canvas的clip相交的行。
+     * <p>
+     * 硬件加速和Picture录制时，clip总是整个View,不会跳过任何一行；
+     * 这时也不能按 getLocalVisibleRect 跳过：记录的DisplayList/Picture在滚动时直接复用，不会重新绘制，
+     * 跳过的行滚动进入屏幕后会是空白。所以硬件加速时不查询clip。
+     *
+     * @param pressedTag 按下的Tag,没有时为-1
+     * @param rect       复用的RectF
+     * @param clip       复用的Rect
+     */
+    void draw(Canvas canvas, int pressedTag, RectF rect, Rect clip) {
+        TagLayout tagLayout = layout;
+        int count = tagLayout.getVisibleTagCount();
+        int first = 0;
+        int end = count;
+        if (count > 0 && !canvas.isHardwareAccelerated() && canvas.getClipBounds(clip)) {
+            if (clip.bottom <= 0 || clip.top >= getHeight()) {
+                //整组都在clip之外
+                return;
+            }
+            first = tagLayout.getLineStart(tagLayout.getLineForVertical(clip.top));
+            end = tagLayout.getLineStart(tagLayout.getLineForVertical(clip.bottom) + 1);
+        }
+
+        if (mVariantTagCount > 0) {
+            drawVariants(canvas, pressedTag, rect, first, end);
+            return;
+        }
+
+        //先一次绘制所有的背景，再绘制所有的文字，中间不切换Paint和Canvas的状态
+        TagStyle style = this.style;
+        int radius = style.getTagRadius();
+        int tagHeight = tagLayout.getTagHeight();
+        Paint backgroundPaint = style.getBackgroundPaint();
+        if (first == 0 && end == count) {
+            canvas.drawPath(getBackgroundPath(rect), backgroundPaint);
+        } else {
+            for (int i = first; i < end; i++) {
+                float x = tagLayout.getX(i);
+                float y = tagLayout.getY(i);
+                rect.set(x, y, x + tagLayout.getTagWidth(i), y + tagHeight);
+                canvas.drawRoundRect(rect, radius, radius, backgroundPaint);
+            }
+            if (tagLayout.getOverflowText() != null) {
+                float x = tagLayout.getOverflowX();
+                float y = tagLayout.getOverflowY();
+                rect.set(x, y, x + tagLayout.getOverflowWidth(), y + tagHeight);
+                canvas.drawRoundRect(rect, radius, radius, backgroundPaint);
+            }
+        }
+        if (pressedTag >= 0 && pressedTag < count) {
+            float x = tagLayout.getX(pressedTag);
+            float y = tagLayout.getY(pressedTag);
+            rect.set(x, y, x + tagLayout.getTagWidth(pressedTag), y + tagHeight);
+            canvas.drawRoundRect(rect, radius, radius, style.getPressedPaint());
+        }
+
+        Paint textPaint = getTextPaint(0);
+        float textOffsetX = style.getTextPaddingLeft();
+        float textOffsetY = mTextSize + style.getTextPaddingTop();
+        //超出最大行数的Tag没有排列，不绘制
+        for (int i = first; i < end; i++) {
+            canvas.drawText(tagLayout.getDisplayText(i), tagLayout.getX(i) + textOffsetX,
+                    tagLayout.getY(i) + textOffsetY, textPaint);
+        }
+        String overflowText = tagLayout.getOverflowText();
+        if (overflowText != null) {
+            canvas.drawText(overflowText, tagLayout.getOverflowX() + textOffsetX,
+                    tagLayout.getOverflowY() + textOffsetY, textPaint);
+        }
+    }
+
+    /**
+     * 有变体时，按调色板的下标分批绘制背景、边框和文字，每一批只使用同一个Paint
+     */
+    private void drawVariants(Canvas canvas, int pressedTag, RectF rect, int first, int end) {
+        TagLayout tagLayout = layout;
+        TagStyle style = this.style;
+        int radius = style.getTagRadius();
+        int tagHeight = tagLayout.getTagHeight();
+        int variantCount = style.getVariantCount();
+        int[] variants = mVariants;
+        int variantLength = variants.length;
+        for (int v = 0; v < variantCount; v++) {
+            Paint backgroundPaint = style.getBackgroundPaint(v);
+            for (int i = first; i < end; i++) {
+                if ((i < variantLength ? variants[i] : 0) == v) {
+                    float x = tagLayout.getX(i);
+                    float y = tagLayout.getY(i);
+                    rect.set(x, y, x + tagLayout.getTagWidth(i), y + tagHeight);
+                    canvas.drawRoundRect(rect, radius, radius, backgroundPaint);
+                }
+            }
+        }
+        //"+N" 使用默认样式
+        if (tagLayout.getOverflowText() != null) {
+            float x = tagLayout.getOverflowX();
+            float y = tagLayout.getOverflowY();
+            rect.set(x, y, x + tagLayout.getOverflowWidth(), y + tagHeight);
+            canvas.drawRoundRect(rect, radius, radius, style.getBackgroundPaint());
+        }
+        for (int v = 1; v < variantCount; v++) {
+            Paint borderPaint = style.getBorderPaint(v);
+            if (borderPaint == null) {
+                continue;
+            }
+            //边框画在Tag的区域内，软件绘制只重绘Tag区域时不会残留
+            float inset = borderPaint.getStrokeWidth() / 2;
+            for (int i = first; i < end; i++) {
+                if ((i < variantLength ? variants[i] : 0) == v) {
+                    float x = tagLayout.getX(i);
+                    float y = tagLayout.getY(i);
+                    rect.set(x + inset, y + inset, x + tagLayout.getTagWidth(i) - inset, y + tagHeight - inset);
+                    canvas.drawRoundRect(rect, radius, radius, borderPaint);
+                }
+            }
+        }
+        if (pressedTag >= first && pressedTag < end) {
+            float x = tagLayout.getX(pressedTag);
+            float y = tagLayout.getY(pressedTag);
+            rect.set(x, y, x + tagLayout.getTagWidth(pressedTag), y + tagHeight);
+            canvas.drawRoundRect(rect, radius, radius, style.getPressedPaint());
+        }
+
+        float textOffsetX = style.getTextPaddingLeft();
+        float textOffsetY = mTextSize + style.getTextPaddingTop();
+        for (int v = 0; v < variantCount; v++) {
+            TextPaint textPaint = getTextPaint(v);
+            for (int i = first; i < end; i++) {
+                if ((i < variantLength ? variants[i] : 0) == v) {
+                    canvas.drawText(tagLayout.getDisplayText(i), tagLayout.getX(i) + textOffsetX,
+                            tagLayout.getY(i) + textOffsetY, textPaint);
+                }
+            }
+        }
+        String overflowText = tagLayout.getOverflowText();
+        if (overflowText != null) {
+            canvas.drawText(overflowText, tagLayout.getOverflowX() + textOffsetX,
+                    tagLayout.getOverflowY() + textOffsetY, getTextPaint(0));
+        }
+    }
+
+    /**
+     * 所有Tag的背景，排列结果变化后重新生成
+     */
+    private Path getBackgroundPath(RectF rect) {
+        TagLayout tagLayout = layout;
+        Path path = mBackgroundPath;
+        int radius = style.getTagRadius();
+        int tagHeight = tagLayout.getTagHeight();
+        if (mBackgroundGeneration == tagLayout.getGeneration()
+                && mBackgroundRadius == radius && mBackgroundTagHeight == tagHeight) {
+            return path;
+        }
+        path.rewind();
+        int count = tagLayout.getVisibleTagCount();
+        for (int i = 0; i < count; i++) {
+            float x = tagLayout.getX(i);
+            float y = tagLayout.getY(i);
+            rect.set(x, y, x + tagLayout.getTagWidth(i), y + tagHeight);
+            path.addRoundRect(rect, radius, radius, Path.Direction.CW);
+        }
+        if (tagLayout.getOverflowText() != null) {
+            float x = tagLayout.getOverflowX();
+            float y = tagLayout.getOverflowY();
+            rect.set(x, y, x + tagLayout.getOverflowWidth(), y + tagHeight);
+            path.addRoundRect(rect, radius, radius, Path.Direction.CW);
+        }
+        mBackgroundGeneration = tagLayout.getGeneration();
+        mBackgroundRadius = radius;
+        mBackgroundTagHeight = tagHeight;
+        return path;
+    }
+}
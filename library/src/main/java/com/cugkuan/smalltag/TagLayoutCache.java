@@ -0,0 +1,209 @@
+package com.cugkuan.smalltag;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Tags换行结果的缓存，进程内所有的SmallTagView共享。
+ * <p>
+ * 以(Tags的内容, widthMeasureSpec, 最大行数, 左右padding, {@link TagStyle})作为key,按LRU淘汰；
+ * 列表中复用的Item再次以相同的宽度显示相同的Tags时，直接复制换行结果，不再计算换行。
+ * 横竖屏的宽度分别作为不同的key缓存，旋转后再旋转回来时同样命中。
+ */
+public final class TagLayoutCache {
+
+    /**
+     * 默认缓存的条数
+     */
+    public static final int DEFAULT_MAX_SIZE = 128;
+
+    private static volatile TagLayoutCache sDefault;
+
+    /**
+     * value 在放入后不再修改
+     */
+    private final LinkedHashMap<Key, TagLayout> mMap;
+    /**
+     * 查找时复用的Key，避免每次查找都创建对象,只在锁内使用。
+     */
+    private final Key mLookupKey = new Key();
+
+    private int mMaxSize;
+
+    private int mHitCount;
+
+    private int mMissCount;
+
+    public TagLayoutCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.mMaxSize = maxSize;
+        this.mMap = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 进程内共享的缓存
+     */
+    public static TagLayoutCache getDefault() {
+        if (sDefault == null) {
+            synchronized (TagLayoutCache.class) {
+                if (sDefault == null) {
+                    sDefault = new TagLayoutCache(DEFAULT_MAX_SIZE);
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 查找与target的Tags相同的换行结果，找到时复制到target中
+     *
+     * @param maxWidth 排列的宽度，复制后target的参数与缓存的结果不一致时不算命中
+     * @return 是否命中，命中后以相同的参数调用 {@link TagLayout#layout(int)} 时不再计算
+     */
+    boolean restore(TagLayout target, TagStyle style, int widthMeasureSpec,
+                    int horizontalPadding, int maxWidth) {
+        int contentHash = target.getContentHash();
+        synchronized (this) {
+            mLookupKey.set(contentHash, widthMeasureSpec, style.getMaxLines(),
+                    horizontalPadding, style);
+            TagLayout cached = mMap.get(mLookupKey);
+            mLookupKey.style = null;
+            if (cached != null && cached.hasSameTags(target)) {
+                target.copyFrom(cached, true);
+                if (!target.needsLayout(maxWidth)) {
+                    mHitCount++;
+                    return true;
+                }
+            }
+            mMissCount++;
+            return false;
+        }
+    }
+
+    /**
+     * 是否已经缓存了与target的Tags相同的换行结果，不计入命中次数
+     */
+    boolean contains(TagLayout target, TagStyle style, int widthMeasureSpec,
+                     int horizontalPadding) {
+        int contentHash = target.getContentHash();
+        synchronized (this) {
+            mLookupKey.set(contentHash, widthMeasureSpec, style.getMaxLines(),
+                    horizontalPadding, style);
+            TagLayout cached = mMap.get(mLookupKey);
+            mLookupKey.style = null;
+            return cached != null && cached.hasSameTags(target);
+        }
+    }
+
+    /**
+     * 保存source当前的换行结果
+     */
+    void put(TagLayout source, TagStyle style, int widthMeasureSpec, int horizontalPadding) {
+        TagLayout copy = new TagLayout(null);
+        copy.copyFrom(source, true);
+        Key key = new Key();
+        key.set(source.getContentHash(), widthMeasureSpec, style.getMaxLines(),
+                horizontalPadding, style);
+        synchronized (this) {
+            mMap.put(key, copy);
+            trimToSize(mMaxSize);
+        }
+    }
+
+    /**
+     * 修改缓存的容量
+     */
+    public synchronized void resize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized void evictAll() {
+        mMap.clear();
+    }
+
+    public synchronized int size() {
+        return mMap.size();
+    }
+
+    public synchronized int maxSize() {
+        return mMaxSize;
+    }
+
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    public synchronized void resetStats() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<Key, TagLayout>> iterator = mMap.entrySet().iterator();
+        while (mMap.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Key {
+
+        private int contentHash;
+        private int widthMeasureSpec;
+        private int maxLines;
+        private int horizontalPadding;
+        /**
+         * TagStyle不可变，按对象比较
+         */
+        private TagStyle style;
+
+        void set(int contentHash, int widthMeasureSpec, int maxLines, int horizontalPadding,
+                 TagStyle style) {
+            this.contentHash = contentHash;
+            this.widthMeasureSpec = widthMeasureSpec;
+            this.maxLines = maxLines;
+            this.horizontalPadding = horizontalPadding;
+            this.style = style;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return contentHash == key.contentHash
+                    && widthMeasureSpec == key.widthMeasureSpec
+                    && maxLines == key.maxLines
+                    && horizontalPadding == key.horizontalPadding
+                    && style == key.style;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = contentHash;
+            result = 31 * result + widthMeasureSpec;
+            result = 31 * result + maxLines;
+            result = 31 * result + horizontalPadding;
+            result = 31 * result + System.identityHashCode(style);
+            return result;
+        }
+    }
+}
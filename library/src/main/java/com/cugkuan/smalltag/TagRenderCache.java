@@ -0,0 +1,273 @@
+package com.cugkuan.smalltag;
+
+import android.content.res.Configuration;
+import android.graphics.Picture;
+import android.graphics.Typeface;
+
+import com.cugkuan.smalltag.layout.TagLayout;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Tags绘制结果的缓存，保存录制好的 {@link Picture}。
+ * <p>
+ * 以(Tags内容和总数, 样式, 宽高, maxLines, density)为key,内容相同的SmallTagView直接回放，不再逐个绘制Tag。
+ * 按估算的内存大小进行LRU淘汰，屏幕密度、字体缩放等配置变化后全部清除。
+ */
+public final class TagRenderCache {
+
+    /**
+     * 默认的内存预算
+     */
+    public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    /**
+     * 估算Picture大小使用的常量
+     */
+    private static final int PICTURE_OVERHEAD_BYTES = 256;
+    private static final int TAG_OPS_BYTES = 96;
+
+    private static volatile TagRenderCache sDefault;
+
+    private final LinkedHashMap<Key, Entry> mMap;
+
+    private final Key mLookupKey = new Key();
+
+    private int mMaxBytes;
+
+    private int mSizeBytes;
+
+    private int mHitCount;
+
+    private int mMissCount;
+
+    private int mDensityDpi;
+
+    private float mFontScale;
+
+    public TagRenderCache(int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes <= 0");
+        }
+        this.mMaxBytes = maxBytes;
+        this.mMap = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 进程内共享的缓存
+     */
+    public static TagRenderCache getDefault() {
+        if (sDefault == null) {
+            synchronized (TagRenderCache.class) {
+                if (sDefault == null) {
+                    sDefault = new TagRenderCache(DEFAULT_MAX_BYTES);
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 查找绘制结果
+     *
+     * @param tagLayout  Tags
+     * @param style      影响绘制的样式
+     * @param typeface   字体
+     * @param width      View的宽度
+     * @param height     View的高度
+     * @param maxLines   最大行数
+     * @param densityDpi 屏幕密度
+     */
+    synchronized Picture get(TagLayout tagLayout, int[] style, Typeface typeface,
+                             int width, int height, int maxLines, int densityDpi) {
+        mLookupKey.set(null, 0, tagLayout, style, typeface, width, height, maxLines, densityDpi);
+        Entry entry = mMap.get(mLookupKey);
+        mLookupKey.tagLayout = null;
+        mLookupKey.style = null;
+        if (entry != null) {
+            mHitCount++;
+            return entry.picture;
+        }
+        mMissCount++;
+        return null;
+    }
+
+    /**
+     * 保存绘制结果，Tags 和 style 会被复制。
+     */
+    synchronized void put(TagLayout tagLayout, int[] style, Typeface typeface,
+                          int width, int height, int maxLines, int densityDpi,
+                          Picture picture) {
+        int count = tagLayout.getTagCount();
+        String[] texts = new String[count];
+        int textLength = 0;
+        for (int i = 0; i < count; i++) {
+            texts[i] = tagLayout.getText(i);
+            textLength += texts[i].length();
+        }
+        Key key = new Key();
+        key.set(texts, tagLayout.getTotalTagCount(), null, Arrays.copyOf(style, style.length),
+                typeface, width, height, maxLines, densityDpi);
+        int size = PICTURE_OVERHEAD_BYTES + count * TAG_OPS_BYTES + textLength * 2;
+        Entry previous = mMap.put(key, new Entry(picture, size));
+        if (previous != null) {
+            mSizeBytes -= previous.size;
+        }
+        mSizeBytes += size;
+        trimToSize(mMaxBytes);
+    }
+
+    /**
+     * 配置变化时调用，屏幕密度或者字体缩放变化后，清除所有的缓存
+     */
+    public synchronized void onConfigurationChanged(Configuration newConfig) {
+        if (newConfig.densityDpi != mDensityDpi || newConfig.fontScale != mFontScale) {
+            if (mDensityDpi != 0) {
+                evictAll();
+            }
+            mDensityDpi = newConfig.densityDpi;
+            mFontScale = newConfig.fontScale;
+        }
+    }
+
+    /**
+     * 修改内存预算
+     */
+    public synchronized void resize(int maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes <= 0");
+        }
+        this.mMaxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    public synchronized void evictAll() {
+        mMap.clear();
+        mSizeBytes = 0;
+    }
+
+    /**
+     * 当前缓存估算占用的内存
+     */
+    public synchronized int sizeBytes() {
+        return mSizeBytes;
+    }
+
+    public synchronized int maxBytes() {
+        return mMaxBytes;
+    }
+
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    private void trimToSize(int maxBytes) {
+        Iterator<Map.Entry<Key, Entry>> iterator = mMap.entrySet().iterator();
+        while (mSizeBytes > maxBytes && iterator.hasNext()) {
+            mSizeBytes -= iterator.next().getValue().size;
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+
+        final Picture picture;
+        final int size;
+
+        Entry(Picture picture, int size) {
+            this.picture = picture;
+            this.size = size;
+        }
+    }
+
+    /**
+     * 保存时使用复制的texts,查找时直接读取tagLayout,不复制。
+     */
+    private static final class Key {
+
+        private String[] texts;
+        private TagLayout tagLayout;
+        private int count;
+        /**
+         * Tags的总数，前maxTagNum个相同时，"+N" 可能不同
+         */
+        private int totalCount;
+        private int[] style;
+        private Typeface typeface;
+        private int width;
+        private int height;
+        private int maxLines;
+        private int densityDpi;
+        private int hash;
+
+        void set(String[] texts, int totalCount, TagLayout tagLayout, int[] style, Typeface typeface,
+                 int width, int height, int maxLines, int densityDpi) {
+            this.texts = texts;
+            this.tagLayout = tagLayout;
+            this.count = texts != null ? texts.length : tagLayout.getTagCount();
+            this.totalCount = texts != null ? totalCount : tagLayout.getTotalTagCount();
+            this.style = style;
+            this.typeface = typeface;
+            this.width = width;
+            this.height = height;
+            this.maxLines = maxLines;
+            this.densityDpi = densityDpi;
+            int result = count;
+            result = 31 * result + this.totalCount;
+            for (int i = 0; i < count; i++) {
+                String text = getText(i);
+                result = 31 * result + (text != null ? text.hashCode() : 0);
+            }
+            result = 31 * result + Arrays.hashCode(style);
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + maxLines;
+            result = 31 * result + densityDpi;
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            if (hash != key.hash || count != key.count || totalCount != key.totalCount
+                    || width != key.width
+                    || height != key.height || maxLines != key.maxLines
+                    || densityDpi != key.densityDpi || typeface != key.typeface
+                    || !Arrays.equals(style, key.style)) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                String text = getText(i);
+                String other = key.getText(i);
+                if (text == null ? other != null : !text.equals(other)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private String getText(int index) {
+            return texts != null ? texts[index] : tagLayout.getText(index);
+        }
+    }
+}
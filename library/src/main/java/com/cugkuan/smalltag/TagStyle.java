@@ -0,0 +1,642 @@
+package com.cugkuan.smalltag;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.WeakHashMap;
+
+
+/**
+ * Tag的样式，包括绘制使用的Paint和各种尺寸，创建后不可修改，可以在多个SmallTagView之间共享。
+ * <p>
+ * 布局中只通过style设置样式时，相同主题下的SmallTagView共享同一个TagStyle,只解析一次属性，
+ * 只创建一份Paint;也可以通过 {@link Builder} 创建后传给 {@link SmallTagView#SmallTagView(Context, TagStyle)}。
+ * <p>
+ * Paint只能读取，不能修改。
+ * <p>
+ * 通过 {@link Builder#addVariant(int, int, int, int)} 添加的变体组成调色板，以下标引用，
+ * 用于突出显示部分Tag(选中、热门等)。变体只改变颜色和边框，不改变文字大小，设置后不需要重新计算换行。
+ */
+public final class TagStyle {
+
+    /**
+     * 默认的Tag背景颜色
+     */
+    static final int DEFAULT_COLOR = Color.parseColor("#F2F2F2");
+    /**
+     * 默认的按下时覆盖在Tag上的颜色
+     */
+    static final int DEFAULT_PRESSED_COLOR = Color.parseColor("#1F000000");
+
+    private static final int DEFAULT_TEXT_COLOR = Color.parseColor("#000000");
+
+    private static final int DEFAULT_TEXT_SIZE = 15;
+
+    private static volatile TagStyle sDefault;
+
+    /**
+     * 主题 -> (style资源 -> TagStyle),主题回收后自动清除
+     */
+    private static final WeakHashMap<Resources.Theme, SparseArray<TagStyle>> sThemeStyles =
+            new WeakHashMap<>();
+
+    private final int mTagBackground;
+    private final int mTagPressedColor;
+    private final int mTagRadius;
+    private final int mTextSize;
+    private final int mTextColor;
+    private final int mTextPaddingLeft;
+    private final int mTextPaddingTop;
+    private final int mTextPaddingRight;
+    private final int mTextPaddingBottom;
+    private final int mHorizontalDivider;
+    private final int mVerticalDivider;
+    private final int mGroupDivider;
+    private final int mMaxLines;
+    private final int mMaxTagNum;
+    private final boolean mShowOverflow;
+    private final int mRenderMode;
+    private final boolean mRenderCache;
+    private final int mSizeMode;
+    private final int mAutoFitMinTextSize;
+    private final boolean mEllipsize;
+    private final int mMaxTagWidth;
+    private final List<int[]> mVariants;
+
+    private final TextPaint mTextPaint;
+    private final Paint mBackgroundPaint;
+    private final Paint mPressedPaint;
+    /**
+     * 调色板，下标0为默认样式，边框为null时不绘制
+     */
+    private final Paint[] mVariantBackgroundPaints;
+    private final TextPaint[] mVariantTextPaints;
+    private final Paint[] mVariantBorderPaints;
+    /**
+     * Tag的高度，文字的高度加上上下内边距
+     */
+    private final int mTagHeight;
+
+    private TagStyle(Builder builder) {
+        this.mTagBackground = builder.tagBackground;
+        this.mTagPressedColor = builder.tagPressedColor;
+        this.mTagRadius = builder.tagRadius;
+        this.mTextSize = builder.textSize;
+        this.mTextColor = builder.textColor;
+        this.mTextPaddingLeft = builder.textPaddingLeft;
+        this.mTextPaddingTop = builder.textPaddingTop;
+        this.mTextPaddingRight = builder.textPaddingRight;
+        this.mTextPaddingBottom = builder.textPaddingBottom;
+        this.mHorizontalDivider = builder.horizontalDivider;
+        this.mVerticalDivider = builder.verticalDivider;
+        this.mGroupDivider = builder.groupDivider;
+        this.mMaxLines = builder.maxLines;
+        this.mMaxTagNum = builder.maxTagNum;
+        this.mShowOverflow = builder.showOverflow;
+        this.mRenderMode = builder.renderMode;
+        this.mRenderCache = builder.renderCache;
+        this.mSizeMode = builder.sizeMode;
+        this.mAutoFitMinTextSize = builder.autoFitMinTextSize;
+        this.mEllipsize = builder.ellipsize;
+        this.mMaxTagWidth = builder.maxTagWidth;
+        this.mVariants = new ArrayList<>(builder.variants);
+
+        mBackgroundPaint = new Paint();
+        mBackgroundPaint.setColor(mTagBackground);
+        mBackgroundPaint.setAntiAlias(true);
+        mBackgroundPaint.setStyle(Paint.Style.FILL);
+
+        mPressedPaint = new Paint();
+        mPressedPaint.setColor(mTagPressedColor);
+        mPressedPaint.setAntiAlias(true);
+        mPressedPaint.setStyle(Paint.Style.FILL);
+
+        mTextPaint = new TextPaint();
+        mTextPaint.setTextSize(mTextSize);
+        mTextPaint.setColor(mTextColor);
+        mTextPaint.setAntiAlias(true);
+
+        int variantCount = mVariants.size() + 1;
+        mVariantBackgroundPaints = new Paint[variantCount];
+        mVariantTextPaints = new TextPaint[variantCount];
+        mVariantBorderPaints = new Paint[variantCount];
+        mVariantBackgroundPaints[0] = mBackgroundPaint;
+        mVariantTextPaints[0] = mTextPaint;
+        for (int i = 1; i < variantCount; i++) {
+            int[] variant = mVariants.get(i - 1);
+            Paint background = new Paint(mBackgroundPaint);
+            background.setColor(variant[0]);
+            mVariantBackgroundPaints[i] = background;
+            //只改变颜色，文字大小与默认样式一致，宽度相同
+            TextPaint text = new TextPaint(mTextPaint);
+            text.setTextSize(mTextSize);
+            text.setColor(variant[1]);
+            mVariantTextPaints[i] = text;
+            if (variant[3] > 0) {
+                Paint border = new Paint();
+                border.setColor(variant[2]);
+                border.setAntiAlias(true);
+                border.setStyle(Paint.Style.STROKE);
+                border.setStrokeWidth(variant[3]);
+                mVariantBorderPaints[i] = border;
+            }
+        }
+
+        Paint.FontMetrics fontMetrics = mTextPaint.getFontMetrics();
+        int fontHeight = Math.round(fontMetrics.bottom - fontMetrics.top);
+        mTagHeight = fontHeight + mTextPaddingTop + mTextPaddingBottom;
+    }
+
+    /**
+     * 没有设置任何属性时的样式
+     */
+    public static TagStyle getDefault() {
+        if (sDefault == null) {
+            synchronized (TagStyle.class) {
+                if (sDefault == null) {
+                    sDefault = new Builder().build();
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 从布局属性中获取样式。
+     * <p>
+     * 只通过style设置样式(没有直接设置SmallTagView的属性)时，以(主题, style)缓存，只解析一次；
+     * 直接设置了属性时每次解析。
+     */
+    public static TagStyle obtain(@NonNull Context context, @Nullable AttributeSet attrs) {
+        if (attrs == null) {
+            return getDefault();
+        }
+        if (hasInlineAttributes(attrs)) {
+            return parse(context, attrs);
+        }
+        int styleRes = attrs.getStyleAttribute();
+        if (styleRes == 0) {
+            return getDefault();
+        }
+        Resources.Theme theme = context.getTheme();
+        synchronized (sThemeStyles) {
+            SparseArray<TagStyle> styles = sThemeStyles.get(theme);
+            if (styles == null) {
+                styles = new SparseArray<>();
+                sThemeStyles.put(theme, styles);
+            }
+            TagStyle style = styles.get(styleRes);
+            if (style == null) {
+                style = parse(context, attrs);
+                styles.put(styleRes, style);
+            }
+            return style;
+        }
+    }
+
+    /**
+     * 布局中是否直接设置了SmallTagView的属性
+     */
+    private static boolean hasInlineAttributes(AttributeSet attrs) {
+        int[] styleable = R.styleable.SmallTagView;
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            int nameResource = attrs.getAttributeNameResource(i);
+            for (int attr : styleable) {
+                if (attr == nameResource) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static TagStyle parse(Context context, AttributeSet attrs) {
+        Builder builder = new Builder();
+        TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.SmallTagView);
+        if (array.hasValue(R.styleable.SmallTagView_tagBackground)) {
+            builder.tagBackground = array.getColor(R.styleable.SmallTagView_tagBackground, DEFAULT_COLOR);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_tagPressedColor)) {
+            builder.tagPressedColor = array.getColor(R.styleable.SmallTagView_tagPressedColor, DEFAULT_PRESSED_COLOR);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_tagVerticalDivider)) {
+            builder.verticalDivider = array.getDimensionPixelSize(R.styleable.SmallTagView_tagVerticalDivider, 0);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_tagGroupDivider)) {
+            builder.groupDivider = array.getDimensionPixelSize(R.styleable.SmallTagView_tagGroupDivider, 0);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_tagHorizontalDivider)) {
+            builder.horizontalDivider = array.getDimensionPixelSize(R.styleable.SmallTagView_tagHorizontalDivider, 0);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_tagRadius)) {
+            builder.tagRadius = array.getDimensionPixelOffset(R.styleable.SmallTagView_tagRadius, 0);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_android_textSize)) {
+            builder.textSize = array.getDimensionPixelSize(R.styleable.SmallTagView_android_textSize, 0);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_android_textColor)) {
+            builder.textColor = array.getColor(R.styleable.SmallTagView_android_textColor, DEFAULT_TEXT_COLOR);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_textPaddingBottom)) {
+            builder.textPaddingBottom = array.getDimensionPixelSize(R.styleable.SmallTagView_textPaddingBottom, 0);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_textPaddingLeft)) {
+            builder.textPaddingLeft = array.getDimensionPixelSize(R.styleable.SmallTagView_textPaddingLeft, 0);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_textPaddingRight)) {
+            builder.textPaddingRight = array.getDimensionPixelSize(R.styleable.SmallTagView_textPaddingRight, 0);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_textPaddingTop)) {
+            builder.textPaddingTop = array.getDimensionPixelSize(R.styleable.SmallTagView_textPaddingTop, 0);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_android_maxLines)) {
+            builder.maxLines = array.getInt(R.styleable.SmallTagView_android_maxLines, Integer.MAX_VALUE);
+        }
+        if (array.hasValue(R.styleable.SmallTagView_maxTagNum)) {
+            builder.maxTagNum = array.getInt(R.styleable.SmallTagView_maxTagNum, Integer.MAX_VALUE);
+        }
+        builder.showOverflow = array.getBoolean(R.styleable.SmallTagView_tagShowOverflow, false);
+        if (array.hasValue(R.styleable.SmallTagView_tagRenderMode)) {
+            builder.renderMode = array.getInt(R.styleable.SmallTagView_tagRenderMode, SmallTagView.RENDER_MODE_AUTO);
+        }
+        builder.renderCache = array.getBoolean(R.styleable.SmallTagView_tagRenderCache, false);
+        if (array.hasValue(R.styleable.SmallTagView_tagSizeMode)) {
+            builder.sizeMode = array.getInt(R.styleable.SmallTagView_tagSizeMode, SmallTagView.SIZE_MODE_WRAP);
+        }
+        builder.ellipsize = array.getBoolean(R.styleable.SmallTagView_tagEllipsize, false);
+        builder.maxTagWidth = array.getDimensionPixelSize(R.styleable.SmallTagView_maxTagWidth, 0);
+        if (array.hasValue(R.styleable.SmallTagView_tagAutoFitMinTextSize)) {
+            builder.autoFitMinTextSize = array.getDimensionPixelSize(R.styleable.SmallTagView_tagAutoFitMinTextSize, 0);
+        }
+        array.recycle();
+        return builder.build();
+    }
+
+    public int getTagBackground() {
+        return mTagBackground;
+    }
+
+    public int getTagPressedColor() {
+        return mTagPressedColor;
+    }
+
+    public int getTagRadius() {
+        return mTagRadius;
+    }
+
+    public int getTextSize() {
+        return mTextSize;
+    }
+
+    public int getTextColor() {
+        return mTextColor;
+    }
+
+    public int getTextPaddingLeft() {
+        return mTextPaddingLeft;
+    }
+
+    public int getTextPaddingTop() {
+        return mTextPaddingTop;
+    }
+
+    public int getTextPaddingRight() {
+        return mTextPaddingRight;
+    }
+
+    public int getTextPaddingBottom() {
+        return mTextPaddingBottom;
+    }
+
+    public int getHorizontalDivider() {
+        return mHorizontalDivider;
+    }
+
+    public int getVerticalDivider() {
+        return mVerticalDivider;
+    }
+
+    /**
+     * 多组Tags之间竖直方向的间隔，只使用View第一组的样式
+     */
+    public int getGroupDivider() {
+        return mGroupDivider;
+    }
+
+    public int getMaxLines() {
+        return mMaxLines;
+    }
+
+    public int getMaxTagNum() {
+        return mMaxTagNum;
+    }
+
+    public boolean isShowOverflow() {
+        return mShowOverflow;
+    }
+
+    public int getRenderMode() {
+        return mRenderMode;
+    }
+
+    /**
+     * 是否使用 {@link TagRenderCache#getDefault()}
+     */
+    public boolean isRenderCache() {
+        return mRenderCache;
+    }
+
+    /**
+     * {@link SmallTagView#SIZE_MODE_WRAP} 或者 {@link SmallTagView#SIZE_MODE_FIXED_LINES}
+     */
+    public int getSizeMode() {
+        return mSizeMode;
+    }
+
+    /**
+     * 超出maxLines时缩小文字的最小大小，为0时不缩小
+     */
+    public int getAutoFitMinTextSize() {
+        return mAutoFitMinTextSize;
+    }
+
+    public boolean isEllipsize() {
+        return mEllipsize;
+    }
+
+    /**
+     * Tag的最大宽度，为0时不限制
+     */
+    public int getMaxTagWidth() {
+        return mMaxTagWidth;
+    }
+
+    /**
+     * 是否截断过宽的Tag,设置了最大宽度时也截断
+     */
+    boolean shouldEllipsize() {
+        return mEllipsize || mMaxTagWidth > 0;
+    }
+
+    /**
+     * 是否缩小文字使所有的Tag排列在maxLines行内，需要设置maxLines
+     */
+    boolean isAutoFit() {
+        return mAutoFitMinTextSize > 0 && mAutoFitMinTextSize < mTextSize
+                && mMaxLines != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Tag的高度，文字的高度加上上下内边距
+     */
+    public int getTagHeight() {
+        return mTagHeight;
+    }
+
+    /**
+     * 文字大小为textSize时Tag的高度，文字的高度按比例缩放
+     */
+    int getTagHeight(int textSize) {
+        if (textSize == mTextSize) {
+            return mTagHeight;
+        }
+        return scaleTagHeight(mTagHeight - mTextPaddingTop - mTextPaddingBottom,
+                mTextPaddingTop + mTextPaddingBottom, textSize, mTextSize);
+    }
+
+    /**
+     * 文字从baseTextSize缩小到textSize后Tag的高度，{@link PrecomputedTags} 在后台线程中也这样计算
+     */
+    static int scaleTagHeight(int fontHeight, int verticalPadding, int textSize, int baseTextSize) {
+        return Math.round((float) fontHeight * textSize / baseTextSize) + verticalPadding;
+    }
+
+    TextPaint getTextPaint() {
+        return mTextPaint;
+    }
+
+    Paint getBackgroundPaint() {
+        return mBackgroundPaint;
+    }
+
+    Paint getPressedPaint() {
+        return mPressedPaint;
+    }
+
+    /**
+     * 调色板的大小，包括下标为0的默认样式
+     */
+    public int getVariantCount() {
+        return mVariantBackgroundPaints.length;
+    }
+
+    Paint getBackgroundPaint(int variant) {
+        return mVariantBackgroundPaints[variant];
+    }
+
+    TextPaint getTextPaint(int variant) {
+        return mVariantTextPaints[variant];
+    }
+
+    @Nullable
+    Paint getBorderPaint(int variant) {
+        return mVariantBorderPaints[variant];
+    }
+
+    /**
+     * 创建TagStyle,尺寸的单位都是px
+     */
+    public static final class Builder {
+
+        private int tagBackground = DEFAULT_COLOR;
+        private int tagPressedColor = DEFAULT_PRESSED_COLOR;
+        private int tagRadius;
+        private int textSize = DEFAULT_TEXT_SIZE;
+        private int textColor = DEFAULT_TEXT_COLOR;
+        private int textPaddingLeft;
+        private int textPaddingTop;
+        private int textPaddingRight;
+        private int textPaddingBottom;
+        private int horizontalDivider;
+        private int verticalDivider;
+        private int groupDivider;
+        private int maxLines = Integer.MAX_VALUE;
+        private int maxTagNum = Integer.MAX_VALUE;
+        private boolean showOverflow;
+        private int renderMode = SmallTagView.RENDER_MODE_AUTO;
+        private boolean renderCache;
+        private int sizeMode = SmallTagView.SIZE_MODE_WRAP;
+        private int autoFitMinTextSize;
+        private boolean ellipsize;
+        private int maxTagWidth;
+        /**
+         * {背景颜色, 文字颜色, 边框颜色, 边框宽度}
+         */
+        private final List<int[]> variants = new ArrayList<>();
+
+        public Builder() {
+        }
+
+        /**
+         * 以已有的样式为基础
+         */
+        public Builder(@NonNull TagStyle style) {
+            this.tagBackground = style.mTagBackground;
+            this.tagPressedColor = style.mTagPressedColor;
+            this.tagRadius = style.mTagRadius;
+            this.textSize = style.mTextSize;
+            this.textColor = style.mTextColor;
+            this.textPaddingLeft = style.mTextPaddingLeft;
+            this.textPaddingTop = style.mTextPaddingTop;
+            this.textPaddingRight = style.mTextPaddingRight;
+            this.textPaddingBottom = style.mTextPaddingBottom;
+            this.horizontalDivider = style.mHorizontalDivider;
+            this.verticalDivider = style.mVerticalDivider;
+            this.groupDivider = style.mGroupDivider;
+            this.maxLines = style.mMaxLines;
+            this.maxTagNum = style.mMaxTagNum;
+            this.showOverflow = style.mShowOverflow;
+            this.renderMode = style.mRenderMode;
+            this.renderCache = style.mRenderCache;
+            this.sizeMode = style.mSizeMode;
+            this.autoFitMinTextSize = style.mAutoFitMinTextSize;
+            this.ellipsize = style.mEllipsize;
+            this.maxTagWidth = style.mMaxTagWidth;
+            this.variants.addAll(style.mVariants);
+        }
+
+        public Builder setTagBackground(int color) {
+            this.tagBackground = color;
+            return this;
+        }
+
+        public Builder setTagPressedColor(int color) {
+            this.tagPressedColor = color;
+            return this;
+        }
+
+        public Builder setTagRadius(int radius) {
+            this.tagRadius = radius;
+            return this;
+        }
+
+        public Builder setTextSize(int textSize) {
+            this.textSize = textSize;
+            return this;
+        }
+
+        public Builder setTextColor(int color) {
+            this.textColor = color;
+            return this;
+        }
+
+        public Builder setTextPadding(int left, int top, int right, int bottom) {
+            this.textPaddingLeft = left;
+            this.textPaddingTop = top;
+            this.textPaddingRight = right;
+            this.textPaddingBottom = bottom;
+            return this;
+        }
+
+        public Builder setDivider(int horizontalDivider, int verticalDivider) {
+            this.horizontalDivider = horizontalDivider;
+            this.verticalDivider = verticalDivider;
+            return this;
+        }
+
+        public Builder setGroupDivider(int groupDivider) {
+            this.groupDivider = groupDivider;
+            return this;
+        }
+
+        public Builder setMaxLines(int maxLines) {
+            this.maxLines = maxLines;
+            return this;
+        }
+
+        public Builder setMaxTagNum(int maxTagNum) {
+            this.maxTagNum = maxTagNum;
+            return this;
+        }
+
+        public Builder setShowOverflow(boolean showOverflow) {
+            this.showOverflow = showOverflow;
+            return this;
+        }
+
+        public Builder setRenderMode(int renderMode) {
+            this.renderMode = renderMode;
+            return this;
+        }
+
+        public Builder setRenderCache(boolean renderCache) {
+            this.renderCache = renderCache;
+            return this;
+        }
+
+        /**
+         * @param sizeMode {@link SmallTagView#SIZE_MODE_WRAP} 或者 {@link SmallTagView#SIZE_MODE_FIXED_LINES}
+         */
+        public Builder setSizeMode(int sizeMode) {
+            this.sizeMode = sizeMode;
+            return this;
+        }
+
+        /**
+         * 超出maxLines时缩小文字，直到所有的Tag都能显示，最小为minTextSize;为0时不缩小
+         */
+        public Builder setAutoFitMinTextSize(int minTextSize) {
+            this.autoFitMinTextSize = minTextSize;
+            return this;
+        }
+
+        /**
+         * 宽度超出可用宽度的Tag截断后以省略号结尾
+         */
+        public Builder setEllipsize(boolean ellipsize) {
+            this.ellipsize = ellipsize;
+            return this;
+        }
+
+        /**
+         * Tag的最大宽度(包含文字的左右内边距)，超出时截断；为0时不限制
+         */
+        public Builder setMaxTagWidth(int maxTagWidth) {
+            this.maxTagWidth = maxTagWidth;
+            return this;
+        }
+
+        /**
+         * 添加没有边框的变体
+         *
+         * @see #addVariant(int, int, int, int)
+         */
+        public Builder addVariant(int backgroundColor, int textColor) {
+            return addVariant(backgroundColor, textColor, 0, 0);
+        }
+
+        /**
+         * 添加一个变体，下标从1开始依次递增，通过 {@link SmallTagView#setTagVariant(int, int)} 使用
+         *
+         * @param borderWidth 边框宽度，为0时没有边框
+         */
+        public Builder addVariant(int backgroundColor, int textColor, int borderColor, int borderWidth) {
+            variants.add(new int[]{backgroundColor, textColor, borderColor, borderWidth});
+            return this;
+        }
+
+        public TagStyle build() {
+            return new TagStyle(this);
+        }
+    }
+}
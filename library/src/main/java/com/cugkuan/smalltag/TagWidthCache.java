@@ -0,0 +1,125 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Paint;
+import android.support.annotation.Nullable;
+
+
+/**
+ * Tag宽度的测量缓存，进程内所有的SmallTagView共享。
+ * <p>
+ * 以(文字, 文字大小, 字体, 字间距, 左右内边距)作为key,按LRU淘汰；
+ * 列表中复用的Item再次显示相同的Tag时，不再调用 {@link Paint#measureText(String)}。
+ * 设置了 {@link TagWidthStore} 时，进程重新启动后也不再测量已经保存的Tag。
+ */
+public final class TagWidthCache {
+
+    /**
+     * 默认缓存的条数
+     */
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    private static volatile TagWidthCache sDefault;
+
+    /**
+     * 只在锁内使用
+     */
+    private final LruMap<PaintTextKey, Integer> mMap;
+    /**
+     * 查找时复用的Key，避免每次查找都创建对象,只在锁内使用。
+     */
+    private final PaintTextKey mLookupKey = new PaintTextKey();
+    /**
+     * 磁盘上保存的宽度，为null时不使用
+     */
+    private volatile TagWidthStore mStore;
+
+    public TagWidthCache(int maxSize) {
+        this.mMap = new LruMap<>(maxSize);
+    }
+
+    /**
+     * 进程内共享的缓存
+     */
+    public static TagWidthCache getDefault() {
+        if (sDefault == null) {
+            synchronized (TagWidthCache.class) {
+                if (sDefault == null) {
+                    sDefault = new TagWidthCache(DEFAULT_MAX_SIZE);
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 获取Tag的宽度(文字宽度 + 左右内边距)，缓存中没有时使用paint进行测量。
+     */
+    public int getWidth(String text, Paint paint, int paddingLeft, int paddingRight) {
+        synchronized (this) {
+            mLookupKey.set(text, 0, paint, paddingLeft, paddingRight);
+            Integer width = mMap.get(mLookupKey);
+            mLookupKey.clear();
+            if (width != null) {
+                return width;
+            }
+        }
+        float letterSpacing = PaintTextKey.letterSpacing(paint);
+        TagWidthStore store = mStore;
+        int width = store != null ? store.get(text, paint, letterSpacing, paddingLeft, paddingRight) : -1;
+        if (width < 0) {
+            width = Math.round(paint.measureText(text)) + paddingLeft + paddingRight;
+            if (store != null) {
+                store.put(text, paint, letterSpacing, paddingLeft, paddingRight, width);
+            }
+        }
+        PaintTextKey key = new PaintTextKey();
+        key.set(text, 0, paint, paddingLeft, paddingRight);
+        synchronized (this) {
+            mMap.put(key, width);
+        }
+        return width;
+    }
+
+    /**
+     * 设置保存在磁盘上的宽度，内存中没有时先从这里查找，新测量的宽度也保存到这里
+     */
+    public void setStore(@Nullable TagWidthStore store) {
+        mStore = store;
+    }
+
+    @Nullable
+    public TagWidthStore getStore() {
+        return mStore;
+    }
+
+    /**
+     * 修改缓存的容量
+     */
+    public synchronized void resize(int maxSize) {
+        mMap.resize(maxSize);
+    }
+
+    public synchronized void evictAll() {
+        mMap.clear();
+    }
+
+    public synchronized int size() {
+        return mMap.size();
+    }
+
+    public synchronized int maxSize() {
+        return mMap.maxSize();
+    }
+
+    public synchronized int hitCount() {
+        return mMap.hitCount();
+    }
+
+    public synchronized int missCount() {
+        return mMap.missCount();
+    }
+
+    public synchronized void resetStats() {
+        mMap.resetStats();
+    }
+}
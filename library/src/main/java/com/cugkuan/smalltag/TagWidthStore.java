@@ -0,0 +1,422 @@
+package com.cugkuan.smalltag;
+
+import android.content.res.Configuration;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 保存在磁盘上的Tag宽度，进程重新启动后，首屏已经测量过的Tag不再调用 {@link Paint#measureText(String)}。
+ * <p>
+ * 通过 {@link TagWidthCache#setStore(TagWidthStore)} 使用：内存缓存没有时先从这里查找，
+ * 新测量的宽度在后台线程中延迟写入文件。启动时调用一次 {@link #load()},以内存映射的方式读取文件。
+ * <p>
+ * 以(文字, 文字大小, 字间距, 左右内边距, 字体)作为key,只保存系统字体({@link Typeface#DEFAULT} 等)的宽度。
+ * 文件头记录字体缩放、屏幕密度、语言、系统版本和 fontVersion,任意一项与当前不一致时整个文件失效；
+ * 应用更换了自带的字体时修改 fontVersion。
+ * <p>
+ * 文件格式：
+ * <pre>
+ * int magic, int version, float fontScale, int densityDpi, string locale, string fingerprint,
+ * int fontVersion, int count,
+ * count * (string text, float textSize, float letterSpacing, int paddingLeft, int paddingRight,
+ *          byte typeface, int width)
+ * </pre>
+ * string为short长度加UTF-8字节，数字都是大端序。
+ */
+public final class TagWidthStore {
+
+    private static final String TAG = "TagWidthStore";
+
+    /**
+     * 默认保存的条数
+     */
+    public static final int DEFAULT_MAX_SIZE = 2048;
+
+    private static final int MAGIC = 0x53545743;
+
+    private static final int VERSION = 1;
+
+    /**
+     * 新的宽度在这段时间后一次写入
+     */
+    private static final long SAVE_DELAY_MILLIS = 3000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 不能保存的字体
+     */
+    private static final byte TYPEFACE_UNKNOWN = -1;
+
+    private static ScheduledExecutorService sExecutor;
+
+    private final File mFile;
+
+    private final int mFontVersion;
+
+    private final String mFingerprint;
+
+    private float mFontScale;
+
+    private int mDensityDpi;
+
+    private String mLocale;
+
+    private final LinkedHashMap<Key, Integer> mMap;
+    /**
+     * 查找时复用的Key，只在锁内使用
+     */
+    private final Key mLookupKey = new Key();
+
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+
+    private boolean mSaveScheduled;
+
+    private final Runnable mSaveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                save();
+            } catch (IOException e) {
+                Log.w(TAG, "save failed", e);
+            }
+        }
+    };
+
+    private final Runnable mDeleteRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFile.delete();
+        }
+    };
+
+    public TagWidthStore(@NonNull File file, @NonNull Configuration config) {
+        this(file, config, 0);
+    }
+
+    /**
+     * @param fontVersion 应用自带字体的版本，更换字体后修改，已保存的宽度失效
+     */
+    public TagWidthStore(@NonNull File file, @NonNull Configuration config, int fontVersion) {
+        this.mFile = file;
+        this.mFontVersion = fontVersion;
+        this.mFingerprint = Build.FINGERPRINT != null ? Build.FINGERPRINT : "";
+        this.mFontScale = config.fontScale;
+        this.mDensityDpi = config.densityDpi;
+        this.mLocale = getLocale(config);
+        this.mMap = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 读取文件中的宽度，文件不存在、损坏或者与当前配置不一致时返回0,并删除文件
+     *
+     * @return 读取的条数
+     */
+    @WorkerThread
+    public synchronized int load() {
+        if (!mFile.exists()) {
+            return 0;
+        }
+        int count = 0;
+        try {
+            RandomAccessFile file = new RandomAccessFile(mFile, "r");
+            try {
+                FileChannel channel = file.getChannel();
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                count = read(buffer);
+            } finally {
+                file.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            //损坏的文件当作没有
+            count = -1;
+        }
+        if (count < 0) {
+            mMap.clear();
+            mFile.delete();
+            return 0;
+        }
+        return count;
+    }
+
+    private int read(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getFloat() != mFontScale || buffer.getInt() != mDensityDpi
+                || !readString(buffer).equals(mLocale) || !readString(buffer).equals(mFingerprint)
+                || buffer.getInt() != mFontVersion) {
+            return -1;
+        }
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            Key key = new Key();
+            String text = readString(buffer);
+            float textSize = buffer.getFloat();
+            float letterSpacing = buffer.getFloat();
+            int paddingLeft = buffer.getInt();
+            int paddingRight = buffer.getInt();
+            byte typeface = buffer.get();
+            key.set(text, textSize, letterSpacing, paddingLeft, paddingRight, typeface);
+            mMap.put(key, buffer.getInt());
+        }
+        trimToSize(mMaxSize);
+        return count;
+    }
+
+    /**
+     * 查找保存的宽度
+     *
+     * @return 没有时返回-1
+     */
+    int get(String text, Paint paint, float letterSpacing, int paddingLeft, int paddingRight) {
+        byte typeface = getTypefaceCode(paint.getTypeface());
+        if (typeface == TYPEFACE_UNKNOWN) {
+            return -1;
+        }
+        synchronized (this) {
+            mLookupKey.set(text, paint.getTextSize(), letterSpacing, paddingLeft, paddingRight, typeface);
+            Integer width = mMap.get(mLookupKey);
+            mLookupKey.text = null;
+            return width != null ? width : -1;
+        }
+    }
+
+    /**
+     * 保存新测量的宽度，稍后在后台线程中写入文件
+     */
+    void put(String text, Paint paint, float letterSpacing, int paddingLeft, int paddingRight,
+             int width) {
+        byte typeface = getTypefaceCode(paint.getTypeface());
+        if (typeface == TYPEFACE_UNKNOWN || text.length() > 0xFFFF / 3) {
+            return;
+        }
+        Key key = new Key();
+        key.set(text, paint.getTextSize(), letterSpacing, paddingLeft, paddingRight, typeface);
+        synchronized (this) {
+            mMap.put(key, width);
+            trimToSize(mMaxSize);
+            if (!mSaveScheduled) {
+                mSaveScheduled = true;
+                getExecutor().schedule(mSaveRunnable, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 立即写入文件，先写入临时文件再重命名，写入过程中进程退出不会损坏已有的文件
+     */
+    @WorkerThread
+    public void save() throws IOException {
+        Key[] keys;
+        int[] widths;
+        float fontScale;
+        int densityDpi;
+        String locale;
+        synchronized (this) {
+            mSaveScheduled = false;
+            keys = new Key[mMap.size()];
+            widths = new int[keys.length];
+            int i = 0;
+            for (Map.Entry<Key, Integer> entry : mMap.entrySet()) {
+                keys[i] = entry.getKey();
+                widths[i] = entry.getValue();
+                i++;
+            }
+            fontScale = mFontScale;
+            densityDpi = mDensityDpi;
+            locale = mLocale;
+        }
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeFloat(fontScale);
+            out.writeInt(densityDpi);
+            writeString(out, locale);
+            writeString(out, mFingerprint);
+            out.writeInt(mFontVersion);
+            out.writeInt(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                Key key = keys[i];
+                writeString(out, key.text);
+                out.writeFloat(key.textSize);
+                out.writeFloat(key.letterSpacing);
+                out.writeInt(key.paddingLeft);
+                out.writeInt(key.paddingRight);
+                out.writeByte(key.typeface);
+                out.writeInt(widths[i]);
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+            throw new IOException("rename " + temp + " failed");
+        }
+    }
+
+    /**
+     * 配置变化时调用，字体缩放、屏幕密度或者语言变化后，清除所有保存的宽度。
+     * SmallTagView会自动调用。
+     */
+    public synchronized void onConfigurationChanged(Configuration newConfig) {
+        String locale = getLocale(newConfig);
+        if (newConfig.fontScale != mFontScale || newConfig.densityDpi != mDensityDpi
+                || !locale.equals(mLocale)) {
+            mFontScale = newConfig.fontScale;
+            mDensityDpi = newConfig.densityDpi;
+            mLocale = locale;
+            evictAll();
+        }
+    }
+
+    /**
+     * 清除所有保存的宽度并删除文件，如应用在运行时更换了字体。
+     * 通常在UI线程中调用，只清除内存中的宽度，文件在后台线程中删除，与写入文件按顺序执行。
+     */
+    public synchronized void evictAll() {
+        mMap.clear();
+        getExecutor().execute(mDeleteRunnable);
+    }
+
+    public synchronized void resize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.mMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized int size() {
+        return mMap.size();
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<Key, Integer>> iterator = mMap.entrySet().iterator();
+        while (mMap.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 系统字体在不同进程中对应同一个编号，其他字体无法识别，不保存
+     */
+    private static byte getTypefaceCode(Typeface typeface) {
+        if (typeface == null || typeface == Typeface.DEFAULT) {
+            return 0;
+        } else if (typeface == Typeface.DEFAULT_BOLD) {
+            return 1;
+        } else if (typeface == Typeface.SANS_SERIF) {
+            return 2;
+        } else if (typeface == Typeface.SERIF) {
+            return 3;
+        } else if (typeface == Typeface.MONOSPACE) {
+            return 4;
+        }
+        return TYPEFACE_UNKNOWN;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String getLocale(Configuration config) {
+        return config.locale != null ? config.locale.toString() : "";
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    static synchronized ScheduledExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, TAG);
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    private static final class Key {
+
+        private String text;
+        private float textSize;
+        private float letterSpacing;
+        private int paddingLeft;
+        private int paddingRight;
+        private byte typeface;
+
+        void set(String text, float textSize, float letterSpacing, int paddingLeft,
+                 int paddingRight, byte typeface) {
+            this.text = text;
+            this.textSize = textSize;
+            this.letterSpacing = letterSpacing;
+            this.paddingLeft = paddingLeft;
+            this.paddingRight = paddingRight;
+            this.typeface = typeface;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return textSize == key.textSize
+                    && letterSpacing == key.letterSpacing
+                    && paddingLeft == key.paddingLeft
+                    && paddingRight == key.paddingRight
+                    && typeface == key.typeface
+                    && (text == null ? key.text == null : text.equals(key.text));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text != null ? text.hashCode() : 0;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + Float.floatToIntBits(letterSpacing);
+            result = 31 * result + paddingLeft;
+            result = 31 * result + paddingRight;
+            result = 31 * result + typeface;
+            return result;
+        }
+    }
+}
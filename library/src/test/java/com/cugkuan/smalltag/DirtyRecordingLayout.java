@@ -0,0 +1,61 @@
+package com.cugkuan.smalltag;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.FrameLayout;
+
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 记录子View请求重绘的区域(子View的坐标)。
+ * <p>
+ * Robolectric的 View#draw(Canvas) 不会设置已经绘制的标记，没有绘制过的View调用invalidate不会通知父View,
+ * 所以通过 {@link #drawChild(Canvas, View, long)} 绘制。
+ */
+class DirtyRecordingLayout extends FrameLayout {
+
+    final List<Rect> dirtyRects = new ArrayList<>();
+
+    private final Canvas mCanvas = new Canvas(Bitmap.createBitmap(400, 400, Bitmap.Config.ARGB_8888));
+
+    private DirtyRecordingLayout(Activity activity) {
+        super(activity);
+    }
+
+    /**
+     * 把测量和布局好的View放入Activity中，并绘制一次
+     */
+    static DirtyRecordingLayout attach(View child) {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        DirtyRecordingLayout layout = new DirtyRecordingLayout(activity);
+        layout.addView(child, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        activity.setContentView(layout);
+        child.layout(0, 0, child.getMeasuredWidth(), child.getMeasuredHeight());
+        layout.redraw(child);
+        return layout;
+    }
+
+    /**
+     * 绘制后子View才能再次请求重绘
+     */
+    void redraw(View child) {
+        drawChild(mCanvas, child, getDrawingTime());
+        dirtyRects.clear();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        dirtyRects.add(new Rect(dirty));
+        return super.invalidateChildInParent(location, dirty);
+    }
+}
@@ -0,0 +1,141 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Color;
+import android.text.TextPaint;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowTextPaint;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 在后台线程中计算的Tags,样式参数一致时UI线程不再测量；不一致时按文字重新计算。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = PrecomputedTagsTest.ShadowCountingPaint.class)
+public class PrecomputedTagsTest {
+
+    private static final List<String> TAGS = Arrays.asList("数学", "语文", "化学", "生物");
+
+    private SmallTagView view;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        view = TestViews.newView(TestViews.style().build());
+        //View自己的宽度缓存是空的，UI线程中的测量一定调用measureText
+        view.setTagWidthCache(new TagWidthCache(16));
+        TagWidthCache.getDefault().evictAll();
+        executor = Executors.newSingleThreadExecutor();
+        ShadowCountingPaint.sCount.set(0);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void tagsFuture_appliedWithoutMeasuring() throws Exception {
+        PrecomputedTags precomputed = PrecomputedTags.getTagsFuture(TAGS,
+                view.getPrecomputedTagsParams(), 300, executor).get();
+        assertEquals(TAGS.size(), ShadowCountingPaint.sCount.get());
+
+        ShadowCountingPaint.sCount.set(0);
+        view.setTags(precomputed);
+        TestViews.layout(view, 300);
+        assertEquals(0, ShadowCountingPaint.sCount.get());
+        assertEquals(8, view.getMeasuredWidth());
+        assertEquals(3, view.getTagAt(7, 5));
+    }
+
+    @Test
+    public void mismatchedParams_fallsBackToTags() throws Exception {
+        PrecomputedTags precomputed = PrecomputedTags.getTagsFuture(TAGS,
+                view.getPrecomputedTagsParams(), 300, executor).get();
+        view.setPadding(4, 0, 4, 0);
+
+        ShadowCountingPaint.sCount.set(0);
+        view.setTags(precomputed);
+        TestViews.layout(view, 300);
+        assertEquals(TAGS.size(), ShadowCountingPaint.sCount.get());
+        // 以当前的内边距排列
+        assertEquals(16, view.getMeasuredWidth());
+        assertEquals(0, view.getTagAt(4, 5));
+    }
+
+    @Test
+    public void samePrecomputedTags_keepsVariants() {
+        view = TestViews.newView(TestViews.style()
+                .addVariant(Color.RED, Color.WHITE)
+                .build());
+        PrecomputedTags.Params params = view.getPrecomputedTagsParams();
+        List<String> tags = Arrays.asList("历史", "地理");
+        PrecomputedTags precomputed = PrecomputedTags.create(tags, params, 300);
+        view.setTags(precomputed);
+        TestViews.layout(view, 300);
+        view.setTagVariant(1, 1);
+
+        //同一个对象或者内容相同，不清除变体，也不重新布局
+        view.setTags(precomputed);
+        view.setTags(PrecomputedTags.create(tags, params, 300));
+        assertEquals(1, view.getTagVariant(0, 1));
+        assertFalse(view.isLayoutRequested());
+
+        view.setTags(PrecomputedTags.create(Collections.singletonList("历史"), params, 300));
+        assertEquals(0, view.getTagVariant(0, 0));
+    }
+
+    @Test
+    public void params_recreatedOnlyWhenPaddingChanges() {
+        PrecomputedTags.Params params = view.getPrecomputedTagsParams();
+        assertSame(params, view.getPrecomputedTagsParams());
+        view.setPadding(4, 0, 4, 0);
+        PrecomputedTags.Params padded = view.getPrecomputedTagsParams();
+        assertFalse(params.equals(padded));
+        assertSame(padded, view.getPrecomputedTagsParams());
+    }
+
+    @Test
+    public void equalContent_equalPrecomputedTags() {
+        PrecomputedTags.Params params = view.getPrecomputedTagsParams();
+        PrecomputedTags first = PrecomputedTags.create(TAGS, params, 300);
+        assertEquals(first, PrecomputedTags.create(TAGS, params, 300));
+        assertEquals(first.hashCode(), PrecomputedTags.create(TAGS, params, 300).hashCode());
+        assertFalse(first.equals(PrecomputedTags.create(TAGS, params, 200)));
+        assertFalse(first.equals(PrecomputedTags.create(TAGS.subList(0, 2), params, 300)));
+    }
+
+    /**
+     * 统计所有线程中 measureText 的调用次数，Tag的Paint都是TextPaint
+     */
+    @Implements(TextPaint.class)
+    public static class ShadowCountingPaint extends ShadowTextPaint {
+
+        static final AtomicInteger sCount = new AtomicInteger();
+
+        @Implementation
+        @Override
+        protected float measureText(String text) {
+            sCount.incrementAndGet();
+            return super.measureText(text);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Canvas;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 开启 {@link SmallTagMetrics} 后，各阶段的次数和计数可以在JVM测试中读取。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagMetricsTest {
+
+    /**
+     * Robolectric中文字的宽度等于字符数
+     */
+    private static final List<String> TAGS = Arrays.asList(
+            "数学", "这是一个很长很长很长很长很长很长很长的Tag", "语文", "化学", "生物");
+
+    private SmallTagView view;
+
+    private SmallTagMetrics metrics;
+
+    private TagWidthCache widthCache;
+
+    @Before
+    public void setUp() {
+        TagStyle style = TestViews.style()
+                .setDivider(0, 0)
+                .setMaxLines(1)
+                .build();
+        view = TestViews.newView(style);
+        view.setTagLayoutCache(new TagLayoutCache(8));
+        widthCache = new TagWidthCache(16);
+        view.setTagWidthCache(widthCache);
+        metrics = new SmallTagMetrics();
+    }
+
+    @After
+    public void tearDown() {
+        SmallTagMetrics.install(null);
+    }
+
+    @Test
+    public void countsPhasesAndLayoutWork() {
+        view.setMetrics(metrics);
+        view.setTags(TAGS);
+        TestViews.measure(view, 20);
+        // 第一行只能放下"数学"，测量了放不下的第二个Tag后停止
+        assertEquals(2, metrics.getMeasureCount());
+        assertEquals(2, metrics.getWidthCacheMissCount());
+        assertEquals(0, metrics.getWidthCacheHitCount());
+        assertEquals(4, metrics.getTruncatedTagCount());
+        assertEquals(1, metrics.getRequestLayoutCount());
+        assertEquals(1, metrics.getLayoutCacheMissCount());
+
+        // 宽高不变，不需要requestLayout
+        view.setTags(Collections.singletonList("历史"));
+        assertEquals(3, metrics.getMeasureCount());
+        assertEquals(3, metrics.getWidthCacheMissCount());
+        assertEquals(1, metrics.getRequestLayoutAvoidedCount());
+
+        view.setTags(TAGS);
+        assertEquals(1, metrics.getLayoutCacheHitCount());
+        assertEquals(3, metrics.getMeasureCount());
+        assertEquals(8, metrics.getTruncatedTagCount());
+
+        view.onDraw(new Canvas());
+        assertEquals(3, metrics.getPhaseCount(SmallTagMetrics.PHASE_SET_TAGS));
+        assertEquals(1, metrics.getPhaseCount(SmallTagMetrics.PHASE_MEASURE));
+        assertEquals(1, metrics.getPhaseCount(SmallTagMetrics.PHASE_DRAW));
+
+        // 另一个View测量相同的Tag时宽度来自缓存
+        SmallTagView other = TestViews.newView(view.getTagStyle());
+        other.setTagWidthCache(widthCache);
+        other.setMetrics(metrics);
+        other.setTags(Collections.singletonList("历史"));
+        TestViews.measure(other, 20);
+        assertEquals(4, metrics.getMeasureCount());
+        assertEquals(1, metrics.getWidthCacheHitCount());
+        assertEquals(3, metrics.getWidthCacheMissCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getMeasureCount());
+        assertEquals(0, metrics.getWidthCacheHitCount());
+        assertEquals(0, metrics.getPhaseTotalNanos(SmallTagMetrics.PHASE_SET_TAGS));
+    }
+
+    @Test
+    public void install_appliesToAllViews() {
+        view.setTags(TAGS);
+        assertEquals(0, metrics.getPhaseCount(SmallTagMetrics.PHASE_SET_TAGS));
+
+        SmallTagMetrics.install(metrics);
+        view.setTags(Collections.singletonList("历史"));
+        assertEquals(1, metrics.getPhaseCount(SmallTagMetrics.PHASE_SET_TAGS));
+    }
+}
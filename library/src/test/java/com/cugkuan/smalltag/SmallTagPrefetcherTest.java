@@ -0,0 +1,104 @@
+package com.cugkuan.smalltag;
+
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SmallTagPrefetcher} 在空闲时计算的换行结果，Item绑定时直接命中。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagPrefetcherTest {
+
+    private static final List<String> TAGS_A = Arrays.asList(
+            "数学", "这是一个很长很长很长很长很长很长很长的Tag", "语文", "化学", "生物");
+
+    private static final List<String> TAGS_B = Arrays.asList("历史", "地理", "政治");
+
+    private SmallTagView view;
+
+    private TagLayoutCache layoutCache;
+
+    private TagWidthCache widthCache;
+
+    private SmallTagPrefetcher prefetcher;
+
+    @Before
+    public void setUp() {
+        TagStyle style = TestViews.style()
+                .setMaxLines(2)
+                .build();
+        view = TestViews.newView(style);
+        layoutCache = new TagLayoutCache(8);
+        widthCache = new TagWidthCache(64);
+        view.setTagLayoutCache(layoutCache);
+        view.setTagWidthCache(widthCache);
+        prefetcher = new SmallTagPrefetcher();
+    }
+
+    @Test
+    public void prefetched_bindHitsCache() {
+        view.setTags(TAGS_B);
+        measure();
+        prefetcher.setTarget(view);
+        prefetcher.prefetch(TAGS_A);
+        assertFalse(prefetcher.queueIdle());
+        assertEquals(1, prefetcher.getPrefetchedCount());
+
+        SmallTagMetrics metrics = new SmallTagMetrics();
+        view.setMetrics(metrics);
+        view.setTags(TAGS_A);
+        measure();
+        assertEquals(1, layoutCache.hitCount());
+        assertEquals(0, metrics.getMeasureCount());
+
+        //已经缓存的不再计算
+        prefetcher.prefetch(TAGS_A);
+        prefetcher.queueIdle();
+        assertEquals(2, layoutCache.size());
+    }
+
+    @Test
+    public void notMeasured_warmsWidthsOnly() {
+        prefetcher.setTarget(view);
+        prefetcher.prefetch(TAGS_A);
+        prefetcher.queueIdle();
+        assertEquals(TAGS_A.size(), widthCache.size());
+        assertEquals(0, layoutCache.size());
+    }
+
+    @Test
+    public void budgetExhausted_continuesNextIdle() {
+        prefetcher.setTarget(view);
+        prefetcher.setFrameBudget(0);
+        prefetcher.prefetch(TAGS_A);
+        prefetcher.prefetch(TAGS_B);
+        assertTrue(prefetcher.queueIdle());
+        assertEquals(1, prefetcher.getPendingCount());
+        assertFalse(prefetcher.queueIdle());
+        assertEquals(0, prefetcher.getPendingCount());
+    }
+
+    @Test
+    public void maxPending_dropsOldest() {
+        prefetcher.setTarget(view);
+        prefetcher.setMaxPending(1);
+        prefetcher.prefetch(TAGS_A);
+        prefetcher.prefetch(TAGS_B);
+        prefetcher.queueIdle();
+        assertEquals(TAGS_B.size(), widthCache.size());
+    }
+
+    private void measure() {
+        TestViews.measure(view, 20);
+    }
+}
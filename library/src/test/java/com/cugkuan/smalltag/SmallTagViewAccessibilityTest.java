@@ -0,0 +1,127 @@
+package com.cugkuan.smalltag;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 每个Tag的虚拟无障碍节点只在无障碍服务查询时创建，没有开启无障碍时绑定、测量、绘制和点击都不创建。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewAccessibilityTest {
+
+    private SmallTagView view;
+
+    private final List<String> clicked = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        TagStyle style = TestViews.style()
+                .setDivider(0, 0)
+                .build();
+        view = TestViews.newView(style);
+        view.setOnTagClickListener(new SmallTagView.OnTagClickListener() {
+            @Override
+            public void onTagClick(SmallTagView view, int position, String tag) {
+                clicked.add(tag);
+            }
+        });
+        view.setTags(Arrays.asList("数学", "语文", "化学"));
+        measure();
+    }
+
+    @Test
+    public void accessibilityOff_noNodes() {
+        for (int i = 0; i < 10; i++) {
+            view.setTags(Arrays.asList("历史" + i, "地理", "政治"));
+            measure();
+            view.onDraw(new SmallTagViewRenderModeTest.RecordCanvas());
+        }
+        view.dispatchTouchEvent(obtain(MotionEvent.ACTION_DOWN, 1, 5));
+        view.dispatchTouchEvent(obtain(MotionEvent.ACTION_UP, 1, 5));
+        view.dispatchGenericMotionEvent(obtain(MotionEvent.ACTION_HOVER_MOVE, 1, 5));
+        assertEquals(1, clicked.size());
+        assertNull(view.getTagAccessibilityProvider());
+    }
+
+    @Test
+    public void query_createsNodesLazily() {
+        AccessibilityNodeProvider provider = view.getAccessibilityNodeProvider();
+        TagAccessibilityProvider tagProvider = view.getTagAccessibilityProvider();
+        assertEquals(0, tagProvider.getNodeCount());
+
+        AccessibilityNodeInfo host = provider.createAccessibilityNodeInfo(TagAccessibilityProvider.HOST_ID);
+        assertEquals(3, host.getChildCount());
+        AccessibilityNodeInfo node = provider.createAccessibilityNodeInfo(
+                TagAccessibilityProvider.toVirtualId(0, 1));
+        assertEquals("语文", node.getText().toString());
+        assertTrue(node.isClickable());
+        Rect bounds = new Rect();
+        node.getBoundsInParent(bounds);
+        assertEquals(new Rect(2, 0, 4, 20), bounds);
+        assertEquals(2, tagProvider.getNodeCount());
+
+        assertTrue(provider.performAction(TagAccessibilityProvider.toVirtualId(0, 2),
+                AccessibilityNodeInfo.ACTION_CLICK, null));
+        assertEquals(Arrays.asList("化学"), clicked);
+
+        // 重新绑定后复用，节点反映新的Tags
+        view.setTags(Arrays.asList("历史", "地理"));
+        measure();
+        assertSame(provider, view.getAccessibilityNodeProvider());
+        assertEquals(2, provider.createAccessibilityNodeInfo(TagAccessibilityProvider.HOST_ID).getChildCount());
+        assertNull(provider.createAccessibilityNodeInfo(TagAccessibilityProvider.toVirtualId(0, 2)));
+    }
+
+    @Test
+    public void groupsRemoved_hoverDoesNotThrow() {
+        AccessibilityManager manager = (AccessibilityManager) TestViews.context()
+                .getSystemService(Context.ACCESSIBILITY_SERVICE);
+        ShadowAccessibilityManager shadow = Shadows.shadowOf(manager);
+        shadow.setEnabled(true);
+        shadow.setTouchExplorationEnabled(true);
+        new FrameLayout(TestViews.context()).addView(view);
+        int group = view.addTagGroup(TestViews.style().build());
+        view.setTags(group, Arrays.asList("历史", "地理"));
+        measure();
+        view.getAccessibilityNodeProvider();
+
+        // 第二组在第一组下面
+        assertTrue(view.dispatchHoverEvent(obtain(MotionEvent.ACTION_HOVER_ENTER, 1, 25)));
+        view.removeTagGroups();
+        measure();
+        assertTrue(view.dispatchHoverEvent(obtain(MotionEvent.ACTION_HOVER_MOVE, 1, 5)));
+        assertNull(view.getAccessibilityNodeProvider().createAccessibilityNodeInfo(
+                TagAccessibilityProvider.toVirtualId(group, 0)));
+    }
+
+    private void measure() {
+        TestViews.layout(view, 100);
+    }
+
+    private static MotionEvent obtain(int action, float x, float y) {
+        long now = SystemClock.uptimeMillis();
+        return MotionEvent.obtain(now, now, action, x, y, 0);
+    }
+}
@@ -0,0 +1,178 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 稳定状态下的绘制、测量以及设置相同的Tags,不应该分配任何对象。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewAllocationTest {
+
+    private static final List<String> TAGS = Arrays.asList(
+            "数学", "这是一个很长很长很长很长很长很长很长的Tag", "语文", "化学", "生物", "化学", "历史");
+
+    private static final int WARMUP_ITERATIONS = 10000;
+
+    private static final int ITERATIONS = 1000;
+
+    private SmallTagView view;
+
+    private int widthSpec;
+
+    private int heightSpec;
+
+    @Before
+    public void setUp() {
+        view = TestViews.newView(TestViews.style().build());
+        view.setTags(TAGS);
+        widthSpec = View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.AT_MOST);
+        heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(widthSpec, heightSpec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    @Test
+    public void onDraw_noAllocation() {
+        final Canvas canvas = new NoOpCanvas();
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                view.onDraw(canvas);
+            }
+        });
+    }
+
+    @Test
+    public void onMeasure_noAllocation() {
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                view.onMeasure(widthSpec, heightSpec);
+            }
+        });
+    }
+
+    @Test
+    public void setSameTags_noAllocation() {
+        final List<String> same = new ArrayList<>(TAGS);
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                view.setTags(same);
+            }
+        });
+    }
+
+    @Test
+    public void setSameTagIds_noAllocation() {
+        TagDictionary dictionary = new TagDictionary();
+        view.setTagDictionary(dictionary);
+        final TagDictionary.Snapshot snapshot = dictionary.snapshot(TAGS);
+        view.setTags(snapshot);
+        final TagDictionary.Snapshot same = dictionary.snapshot(TAGS);
+        final int[] ids = same.getIds().clone();
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                view.setTags(ids);
+                view.setTags(snapshot);
+                view.setTags(same);
+            }
+        });
+    }
+
+    @Test
+    public void tapTag_noAllocation() {
+        view.setOnTagClickListener(new SmallTagView.OnTagClickListener() {
+            @Override
+            public void onTagClick(SmallTagView view, int position, String tag) {
+            }
+        });
+        float x = view.getPaddingLeft() + 1;
+        float y = view.getPaddingTop() + 1;
+        assertEquals(0, view.getTagAt(x, y));
+        final MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, y, 0);
+        final MotionEvent up = MotionEvent.obtain(0, 0, MotionEvent.ACTION_UP, x, y, 0);
+        assertNoAllocation(new Runnable() {
+            @Override
+            public void run() {
+                view.onTouchEvent(down);
+                view.onTouchEvent(up);
+            }
+        });
+    }
+
+    /**
+     * 预热后执行 ITERATIONS 次，分配的内存总共必须为0,偶尔一次的分配也不允许。
+     * Robolectric的方法调用在前几千次时会有链接的分配，getThreadAllocatedBytes 第一次调用时
+     * 也有初始化的分配，都需要预热。
+     */
+    private static void assertNoAllocation(Runnable action) {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            action.run();
+        }
+        long start = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            action.run();
+        }
+        long allocated = bean.getThreadAllocatedBytes(threadId) - start;
+        assertEquals("allocated " + allocated + " bytes in " + ITERATIONS + " iterations", 0, allocated);
+    }
+
+    /**
+     * 不进行真正的绘制，避免Canvas本身的分配
+     */
+    static class NoOpCanvas extends Canvas {
+
+        @Override
+        public int save() {
+            return 1;
+        }
+
+        @Override
+        public void restoreToCount(int count) {
+        }
+
+        @Override
+        public boolean clipRect(int left, int top, int right, int bottom) {
+            return true;
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+        }
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+        }
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+        }
+    }
+}
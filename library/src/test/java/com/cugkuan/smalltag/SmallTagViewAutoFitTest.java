@@ -0,0 +1,83 @@
+package com.cugkuan.smalltag;
+
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 设置了最小文字大小时，缩小文字使所有的Tag排列在maxLines行内，每个Tag只测量一次。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewAutoFitTest {
+
+    private static final List<String> TAGS = Arrays.asList("高等数学", "大学语文", "有机化学", "分子生物");
+
+    private TagStyle style;
+
+    private SmallTagView view;
+
+    @Before
+    public void setUp() {
+        //Robolectric中文字宽度为字数，每个Tag宽4
+        style = TestViews.style()
+                .setTextSize(20)
+                .setDivider(0, 0)
+                .setMaxLines(1)
+                .setAutoFitMinTextSize(10)
+                .build();
+        view = TestViews.newView(style);
+        view.setTagWidthCache(new TagWidthCache(16));
+    }
+
+    @Test
+    public void shrinksToFit_measuresOnce() {
+        SmallTagMetrics metrics = new SmallTagMetrics();
+        view.setMetrics(metrics);
+        view.setTags(TAGS);
+        // 宽12放下4个Tag,每个最多宽3,文字大小 20 * 3 / 4
+        measure(12);
+        assertEquals(15, view.getTagTextSize(0));
+        assertEquals(3, view.getTagAt(11, 5));
+        assertEquals(TAGS.size(), metrics.getMeasureCount());
+        // 样式中共享的Paint不变
+        assertEquals(20, style.getTextPaint().getTextSize(), 0);
+
+        // 宽度足够时恢复样式的文字大小
+        measure(100);
+        assertEquals(20, view.getTagTextSize(0));
+        assertEquals(TAGS.size(), metrics.getMeasureCount());
+    }
+
+    @Test
+    public void minTextSize_truncates() {
+        view.setTags(TAGS);
+        measure(6);
+        assertEquals(10, view.getTagTextSize(0));
+        // 最小的文字大小每个Tag宽2,放下3个
+        assertEquals(2, view.getTagAt(5, 5));
+    }
+
+    @Test
+    public void precomputedTags_fitOffMainThread() {
+        PrecomputedTags precomputed = PrecomputedTags.create(TAGS, view.getPrecomputedTagsParams(), 12);
+        SmallTagMetrics metrics = new SmallTagMetrics();
+        view.setMetrics(metrics);
+        view.setTags(precomputed);
+        measure(12);
+        // 缩小后的文字大小随排列一起设置，不再测量
+        assertEquals(15, view.getTagTextSize(0));
+        assertEquals(3, view.getTagAt(11, 5));
+        assertEquals(0, metrics.getMeasureCount());
+    }
+
+    private void measure(int width) {
+        TestViews.layout(view, width);
+    }
+}
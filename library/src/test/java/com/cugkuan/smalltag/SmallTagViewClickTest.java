@@ -0,0 +1,123 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewClickTest {
+
+    private SmallTagView view;
+
+    private final List<String> clicks = new ArrayList<>();
+
+    private final List<String> longClicks = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        view = TestViews.newView(TestViews.style()
+                .setTextPadding(4, 10, 4, 10)
+                .setDivider(6, 0)
+                .build());
+        view.setPadding(5, 5, 5, 5);
+        view.setTags(Arrays.asList("数学", "语文", "化学"));
+        TestViews.layout(view, 300);
+        view.setOnTagClickListener(new SmallTagView.OnTagClickListener() {
+            @Override
+            public void onTagClick(SmallTagView view, int position, String tag) {
+                clicks.add(position + ":" + tag);
+            }
+        });
+        view.setOnTagLongClickListener(new SmallTagView.OnTagLongClickListener() {
+            @Override
+            public boolean onTagLongClick(SmallTagView view, int position, String tag) {
+                longClicks.add(position + ":" + tag);
+                return true;
+            }
+        });
+    }
+
+    @Test
+    public void tap_clicksTag() {
+        float y = view.getHeight() / 2f;
+        float x = findTagX(1, y);
+        assertTrue(view.onTouchEvent(event(MotionEvent.ACTION_DOWN, x, y)));
+        assertTrue(view.onTouchEvent(event(MotionEvent.ACTION_UP, x, y)));
+        assertEquals(Arrays.asList("1:语文"), clicks);
+        assertTrue(longClicks.isEmpty());
+    }
+
+    @Test
+    public void tapOutsideTags_notHandled() {
+        assertEquals(-1, view.getTagAt(1, 1));
+        assertFalse(view.onTouchEvent(event(MotionEvent.ACTION_DOWN, 1, 1)));
+        assertTrue(clicks.isEmpty());
+    }
+
+    @Test
+    public void moveOutOfTag_cancelsClick() {
+        float y = view.getHeight() / 2f;
+        float x = findTagX(0, y);
+        view.onTouchEvent(event(MotionEvent.ACTION_DOWN, x, y));
+        view.onTouchEvent(event(MotionEvent.ACTION_MOVE, x, y + 100));
+        view.onTouchEvent(event(MotionEvent.ACTION_UP, x, y + 100));
+        assertTrue(clicks.isEmpty());
+    }
+
+    @Test
+    public void longPress_consumesClick() {
+        float y = view.getHeight() / 2f;
+        float x = findTagX(2, y);
+        view.onTouchEvent(event(MotionEvent.ACTION_DOWN, x, y));
+        Robolectric.getForegroundThreadScheduler().advanceBy(ViewConfiguration.getLongPressTimeout());
+        view.onTouchEvent(event(MotionEvent.ACTION_UP, x, y));
+        assertEquals(Arrays.asList("2:化学"), longClicks);
+        assertTrue(clicks.isEmpty());
+    }
+
+    @Test
+    public void press_invalidatesOnlyTagBounds() {
+        DirtyRecordingLayout parent = DirtyRecordingLayout.attach(view);
+        float y = view.getHeight() / 2f;
+        float x = findTagX(1, y);
+        Rect tagBounds = new Rect(21, 5, 31, 25);
+
+        view.onTouchEvent(event(MotionEvent.ACTION_DOWN, x, y));
+        assertEquals(Collections.singletonList(tagBounds), parent.dirtyRects);
+
+        parent.redraw(view);
+        view.onTouchEvent(event(MotionEvent.ACTION_UP, x, y));
+        assertEquals(Collections.singletonList(tagBounds), parent.dirtyRects);
+        assertEquals(Arrays.asList("1:语文"), clicks);
+    }
+
+    private float findTagX(int index, float y) {
+        for (int x = 0; x < view.getWidth(); x++) {
+            if (view.getTagAt(x, y) == index) {
+                return x + 1;
+            }
+        }
+        throw new AssertionError("tag " + index + " not found");
+    }
+
+    private static MotionEvent event(int action, float x, float y) {
+        long time = SystemClock.uptimeMillis();
+        return MotionEvent.obtain(time, time, action, x, y, 0);
+    }
+}
@@ -0,0 +1,124 @@
+package com.cugkuan.smalltag;
+
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * 过宽的Tag截断后以省略号结尾，截断结果按(Tag, 宽度)缓存，复用的View再次绑定时不再查找截断位置。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewEllipsizeTest {
+
+    private static final String LONG_TAG = "这是一个很长很长很长很长很长很长很长的Tag";
+
+    private static final List<String> TAGS = Arrays.asList("数学", LONG_TAG);
+
+    private TagEllipsizeCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new TagEllipsizeCache(8);
+    }
+
+    @Test
+    public void ellipsize_toAvailableWidth_cached() {
+        SmallTagView view = newView(TestViews.style()
+                .setEllipsize(true)
+                .build());
+        view.setTags(TAGS);
+        TestViews.layout(view, 10);
+        // Robolectric中文字宽度为字数，9个字加上省略号宽10
+        assertEquals(Arrays.asList("数学", "这是一个很长很长很…"), drawTexts(view));
+        assertEquals(1, cache.missCount());
+
+        view.setTags(Arrays.asList("语文", LONG_TAG));
+        TestViews.layout(view, 10);
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    public void maxTagWidth_ellipsizes() {
+        SmallTagView view = newView(TestViews.style()
+                .setMaxTagWidth(5)
+                .build());
+        view.setTags(TAGS);
+        TestViews.layout(view, 100);
+        assertEquals(Arrays.asList("数学", "这是一个…"), drawTexts(view));
+        // 截断后放在同一行
+        assertEquals(1, view.getTagAt(6, 5));
+    }
+
+    @Test
+    public void layoutCache_sharedBetweenViews() {
+        TagStyle style = TestViews.style()
+                .setEllipsize(true)
+                .build();
+        TagLayoutCache layoutCache = new TagLayoutCache(8);
+        SmallTagView first = newView(style);
+        first.setTagLayoutCache(layoutCache);
+        first.setTags(TAGS);
+        TestViews.layout(first, 10);
+
+        // 另一个View的ellipsizer是不同的实例，仍然命中
+        SmallTagMetrics metrics = new SmallTagMetrics();
+        SmallTagView second = newView(style);
+        second.setTagLayoutCache(layoutCache);
+        second.setMetrics(metrics);
+        second.setTags(TAGS);
+        TestViews.layout(second, 10);
+        assertEquals(1, layoutCache.hitCount());
+        assertEquals(1, metrics.getLayoutCacheHitCount());
+        assertEquals(0, metrics.getLayoutCacheMissCount());
+        assertEquals(Arrays.asList("数学", "这是一个很长很长很…"), drawTexts(second));
+    }
+
+    @Test
+    public void precomputedTags_ellipsizedOffMainThread() {
+        SmallTagView view = newView(TestViews.style()
+                .setEllipsize(true)
+                .build());
+        PrecomputedTags precomputed = PrecomputedTags.create(TAGS, view.getPrecomputedTagsParams(), 10);
+        SmallTagMetrics metrics = new SmallTagMetrics();
+        view.setMetrics(metrics);
+        view.setTags(precomputed);
+        TestViews.layout(view, 10);
+        // 参数相同，不再测量和截断
+        assertEquals(0, metrics.getMeasureCount());
+        assertEquals(0, metrics.getLayoutCacheMissCount());
+        assertEquals(Arrays.asList("数学", "这是一个很长很长很…"), drawTexts(view));
+
+        // 截断的参数不同时不相等
+        SmallTagView other = newView(TestViews.style().build());
+        assertNotEquals(view.getPrecomputedTagsParams(), other.getPrecomputedTagsParams());
+    }
+
+    private SmallTagView newView(TagStyle style) {
+        SmallTagView view = TestViews.newView(style);
+        view.setTagWidthCache(new TagWidthCache(16));
+        view.setTagEllipsizeCache(cache);
+        return view;
+    }
+
+    private static List<String> drawTexts(SmallTagView view) {
+        SmallTagViewRenderModeTest.RecordCanvas canvas = new SmallTagViewRenderModeTest.RecordCanvas();
+        view.onDraw(canvas);
+        List<String> texts = new ArrayList<>();
+        for (String op : canvas.ops) {
+            if (op.startsWith("drawText ")) {
+                texts.add(op.substring("drawText ".length(), op.indexOf(',')));
+            }
+        }
+        return texts;
+    }
+}
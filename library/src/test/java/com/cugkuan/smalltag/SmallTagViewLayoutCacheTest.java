@@ -0,0 +1,88 @@
+package com.cugkuan.smalltag;
+
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 复用的Item再次以相同的宽度显示相同的Tags时，从 {@link TagLayoutCache} 中恢复换行结果。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewLayoutCacheTest {
+
+    private static final List<String> TAGS_A = Arrays.asList(
+            "数学", "这是一个很长很长很长很长很长很长很长的Tag", "语文", "化学", "生物");
+
+    private static final List<String> TAGS_B = Arrays.asList("历史", "地理", "政治");
+
+    private SmallTagView view;
+
+    private TagLayoutCache cache;
+
+    @Before
+    public void setUp() {
+        view = TestViews.newView(TestViews.style().build());
+        cache = new TagLayoutCache(8);
+        view.setTagLayoutCache(cache);
+    }
+
+    @Test
+    public void rebindSameTags_restoresFromCache() {
+        view.setTags(TAGS_A);
+        measure(20);
+        int height = view.getMeasuredHeight();
+        view.setTags(TAGS_B);
+        measure(20);
+        assertEquals(0, cache.hitCount());
+
+        view.setTags(TAGS_A);
+        measure(20);
+        assertEquals(1, cache.hitCount());
+        assertEquals(height, view.getMeasuredHeight());
+    }
+
+    @Test
+    public void rotation_cachesBothWidths() {
+        view.setTags(TAGS_A);
+        measure(20);
+        measure(1000);
+        assertEquals(0, cache.hitCount());
+        assertEquals(2, cache.size());
+
+        view.setTags(TAGS_B);
+        view.setTags(TAGS_A);
+        measure(1000);
+        measure(20);
+        assertEquals(2, cache.hitCount());
+    }
+
+    @Test
+    public void setTags_thenNewMeasureSpec_recalculates() {
+        view.setTags(TAGS_A);
+        measure(1000);
+        int oneLine = view.getMeasuredHeight();
+
+        view.setTags(TAGS_B);
+        view.setTags(TAGS_A);
+        measure(20);
+        assertTrue(view.getMeasuredHeight() > oneLine);
+
+        //padding变化后，相同的MeasureSpec也需要重新计算
+        int height = view.getMeasuredHeight();
+        view.setPadding(0, 5, 0, 5);
+        measure(20);
+        assertEquals(height + 10, view.getMeasuredHeight());
+    }
+
+    private void measure(int width) {
+        TestViews.measure(view, width);
+    }
+}
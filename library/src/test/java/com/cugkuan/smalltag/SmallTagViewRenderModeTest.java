@@ -0,0 +1,219 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Region;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 绘制方式只决定是否使用软件绘制层，各种方式的绘制操作完全相同；
+ * 绘制本身只使用硬件加速支持的操作(save 内 INTERSECT 的 clipRect)。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewRenderModeTest {
+
+    private static final List<String> TAGS = Arrays.asList(
+            "数学", "这是一个很长很长很长很长很长很长很长的Tag", "语文", "化学", "生物", "化学", "历史");
+
+    @Test
+    public void layerType_followsRenderMode() {
+        SmallTagView view = new SmallTagView(TestViews.context());
+        view.setRenderMode(SmallTagView.RENDER_MODE_SOFTWARE);
+        assertEquals(View.LAYER_TYPE_SOFTWARE, view.getLayerType());
+        view.setRenderMode(SmallTagView.RENDER_MODE_HARDWARE);
+        assertEquals(View.LAYER_TYPE_NONE, view.getLayerType());
+        // API 18 开始自动选择不使用软件绘制层
+        view.setRenderMode(SmallTagView.RENDER_MODE_AUTO);
+        assertEquals(View.LAYER_TYPE_NONE, view.getLayerType());
+    }
+
+    @Test
+    public void drawOps_sameInAllModes() {
+        List<String> software = record(SmallTagView.RENDER_MODE_SOFTWARE);
+        int texts = 0;
+        for (String op : software) {
+            if (op.startsWith("drawText ")) {
+                texts++;
+            }
+        }
+        assertEquals(TAGS.size(), texts);
+        assertEquals(software, record(SmallTagView.RENDER_MODE_HARDWARE));
+        assertEquals(software, record(SmallTagView.RENDER_MODE_AUTO));
+    }
+
+    @Test
+    public void draw_clipsWithIntersectInsideSave() {
+        List<String> ops = record(SmallTagView.RENDER_MODE_AUTO);
+        assertEquals("save", ops.get(0));
+        assertTrue(ops.get(1).startsWith("clipRect "));
+        assertEquals("restoreToCount 1", ops.get(ops.size() - 1));
+        for (String op : ops) {
+            // 只有软件绘制支持 Region.Op.REPLACE 等
+            assertFalse(op.startsWith("clipOp"));
+        }
+    }
+
+    @Test
+    public void clip_drawsOnlyVisibleLines() {
+        TagStyle style = TestViews.style()
+                .setDivider(0, 0)
+                .build();
+        SmallTagView view = TestViews.newView(style);
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // 每个Tag宽15,一行一个，第i个Tag的y为20 * i
+            tags.add("tag" + i + "-----------");
+        }
+        view.setTags(tags);
+        TestViews.layout(view, 20);
+
+        RecordCanvas canvas = new RecordCanvas() {
+            @Override
+            public boolean getClipBounds(Rect bounds) {
+                bounds.set(0, 45, 20, 85);
+                return true;
+            }
+        };
+        view.onDraw(canvas);
+        List<String> texts = new ArrayList<>();
+        int backgrounds = 0;
+        for (String op : canvas.ops) {
+            if (op.startsWith("drawText ")) {
+                texts.add(op.substring("drawText ".length(), op.indexOf(',')));
+            } else if (op.startsWith("drawRoundRect ")) {
+                backgrounds++;
+            }
+            assertFalse(op.startsWith("drawPath"));
+        }
+        assertEquals(Arrays.asList(tags.get(2), tags.get(3), tags.get(4)), texts);
+        assertEquals(3, backgrounds);
+    }
+
+    @Test
+    public void renderCache_differentHiddenCount_notShared() {
+        TagStyle style = TestViews.style()
+                .setMaxTagNum(2)
+                .setShowOverflow(true)
+                .build();
+        TagRenderCache cache = new TagRenderCache(TagRenderCache.DEFAULT_MAX_BYTES);
+        // 前两个Tag相同，分别显示 "+1" 和 "+3"
+        drawCached(style, cache, Arrays.asList("数学", "语文", "化学"));
+        drawCached(style, cache, Arrays.asList("数学", "语文", "化学", "生物", "历史"));
+        assertEquals(0, cache.hitCount());
+        assertEquals(2, cache.missCount());
+
+        drawCached(style, cache, Arrays.asList("数学", "语文", "地理", "政治", "生物"));
+        assertEquals(1, cache.hitCount());
+    }
+
+    private static void drawCached(TagStyle style, TagRenderCache cache, List<String> tags) {
+        SmallTagView view = TestViews.newView(style);
+        view.setTagRenderCache(cache);
+        view.setTags(tags);
+        TestViews.layout(view, 300);
+        view.onDraw(new RecordCanvas());
+    }
+
+    private static List<String> record(int renderMode) {
+        SmallTagView view = new SmallTagView(TestViews.context());
+        view.setRenderMode(renderMode);
+        view.setPadding(5, 5, 0, 5);
+        view.setTags(TAGS);
+        TestViews.layout(view, 300);
+        RecordCanvas canvas = new RecordCanvas();
+        view.onDraw(canvas);
+        return canvas.ops;
+    }
+
+    /**
+     * 只记录绘制操作，不进行真正的绘制
+     */
+    static class RecordCanvas extends Canvas {
+
+        final List<String> ops = new ArrayList<>();
+
+        private int saveCount = 1;
+
+        @Override
+        public int save() {
+            ops.add("save");
+            return saveCount++;
+        }
+
+        @Override
+        public void restore() {
+            ops.add("restore");
+            saveCount--;
+        }
+
+        @Override
+        public void restoreToCount(int count) {
+            ops.add("restoreToCount " + count);
+            saveCount = count;
+        }
+
+        @Override
+        public boolean clipRect(int left, int top, int right, int bottom) {
+            ops.add("clipRect " + left + "," + top + "," + right + "," + bottom);
+            return true;
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public boolean clipRect(Rect rect, Region.Op op) {
+            ops.add("clipOp " + op);
+            return true;
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public boolean clipRect(RectF rect, Region.Op op) {
+            ops.add("clipOp " + op);
+            return true;
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public boolean clipRect(float left, float top, float right, float bottom, Region.Op op) {
+            ops.add("clipOp " + op);
+            return true;
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+            ops.add("translate " + dx + "," + dy);
+        }
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+            ops.add("drawRoundRect " + rect + "," + rx + "," + ry + "," + paint.getColor());
+        }
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+            RectF bounds = new RectF();
+            path.computeBounds(bounds, true);
+            ops.add("drawPath " + bounds + "," + paint.getColor());
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            ops.add("drawText " + text + "," + x + "," + y + "," + paint.getColor());
+        }
+    }
+}
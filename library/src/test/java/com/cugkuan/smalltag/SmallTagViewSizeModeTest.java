@@ -0,0 +1,72 @@
+package com.cugkuan.smalltag;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SmallTagView#SIZE_MODE_FIXED_LINES} 下，重新设置Tags不会触发requestLayout。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewSizeModeTest {
+
+    private static final List<List<String>> BINDS = Arrays.asList(
+            Arrays.asList("数学", "这是一个很长很长很长很长很长很长很长的Tag", "语文", "化学", "生物"),
+            Collections.singletonList("历史"),
+            Collections.<String>emptyList(),
+            Arrays.asList("地理", "政治", "这是一个很长很长很长很长很长很长很长的Tag"));
+
+    @Test
+    public void fixedLines_rebindNeverRequestsLayout() {
+        SmallTagView view = createView(SmallTagView.SIZE_MODE_FIXED_LINES);
+        SmallTagMetrics metrics = new SmallTagMetrics();
+        view.setMetrics(metrics);
+        view.setTags(BINDS.get(0));
+        measureAndLayout(view);
+        // 两行Tag的高度，与Tags无关
+        assertEquals(2 * 20 + 4, view.getMeasuredHeight());
+        assertEquals(20, view.getMeasuredWidth());
+
+        for (List<String> tags : BINDS) {
+            view.setTags(tags);
+            assertFalse(view.isLayoutRequested());
+        }
+        assertEquals(0, metrics.getRequestLayoutCount());
+        assertEquals(BINDS.size(), metrics.getRequestLayoutAvoidedCount());
+
+        measureAndLayout(view);
+        assertEquals(2 * 20 + 4, view.getMeasuredHeight());
+    }
+
+    @Test
+    public void wrap_rebindRequestsLayoutWhenSizeChanges() {
+        SmallTagView view = createView(SmallTagView.SIZE_MODE_WRAP);
+        view.setTags(BINDS.get(0));
+        measureAndLayout(view);
+
+        view.setTags(BINDS.get(1));
+        assertTrue(view.isLayoutRequested());
+    }
+
+    private static SmallTagView createView(int sizeMode) {
+        TagStyle style = TestViews.style()
+                .setDivider(0, 4)
+                .setMaxLines(2)
+                .setSizeMode(sizeMode)
+                .build();
+        return TestViews.newView(style);
+    }
+
+    private static void measureAndLayout(SmallTagView view) {
+        TestViews.layout(view, 20);
+    }
+}
@@ -0,0 +1,97 @@
+package com.cugkuan.smalltag;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 一个SmallTagView中显示多组Tags,各组有自己的最大行数，竖直排列。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewTagGroupTest {
+
+    private SmallTagView view;
+
+    private int second;
+
+    private final List<String> clicks = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        TagStyle style = TestViews.style()
+                .setDivider(0, 4)
+                .setGroupDivider(8)
+                .setMaxLines(1)
+                .build();
+        view = TestViews.newView(style);
+        second = view.addTagGroup(new TagStyle.Builder(style).setMaxLines(3).build());
+        view.setOnTagClickListener(new SmallTagView.OnTagClickListener() {
+            @Override
+            public void onTagClick(SmallTagView view, int position, String tag) {
+                clicks.add(view.getTouchedTagGroup() + ":" + position + ":" + tag);
+            }
+        });
+    }
+
+    @Test
+    public void groups_stackWithOwnMaxLines() {
+        view.setTags(Arrays.asList("数学", "语文", "化学"));
+        view.setTags(second, Arrays.asList("历史", "地理", "政治", "生物"));
+        measureAndLayout();
+        // 第一组1行，第二组3行，中间为分组间隔
+        assertEquals(20 + 8 + 3 * 20 + 2 * 4, view.getMeasuredHeight());
+        assertEquals(2, view.getTagGroupCount());
+
+        assertEquals(0, view.getTagGroupAt(1, 10));
+        assertEquals(0, view.getTagAt(1, 10));
+        assertEquals(second, view.getTagGroupAt(1, 28 + 24 + 10));
+        assertEquals(1, view.getTagAt(1, 28 + 24 + 10));
+    }
+
+    @Test
+    public void emptyGroup_takesNoSpace() {
+        view.setTags(Collections.<String>emptyList());
+        view.setTags(second, Collections.singletonList("历史"));
+        measureAndLayout();
+        assertEquals(20, view.getMeasuredHeight());
+        assertEquals(second, view.getTagGroupAt(1, 10));
+
+        view.removeTagGroups();
+        measureAndLayout();
+        assertEquals(0, view.getMeasuredHeight());
+    }
+
+    @Test
+    public void tapSecondGroup_reportsGroup() {
+        view.setTags(Collections.singletonList("数学"));
+        view.setTags(second, Arrays.asList("历史", "地理"));
+        measureAndLayout();
+        float y = 28 + 24 + 10;
+        view.onTouchEvent(event(MotionEvent.ACTION_DOWN, 1, y));
+        view.onTouchEvent(event(MotionEvent.ACTION_UP, 1, y));
+        assertEquals(Collections.singletonList("1:1:地理"), clicks);
+    }
+
+    /**
+     * Robolectric中文字的宽度等于字符数，每行只能放下一个Tag
+     */
+    private void measureAndLayout() {
+        TestViews.layout(view, 3);
+    }
+
+    private static MotionEvent event(int action, float x, float y) {
+        long time = SystemClock.uptimeMillis();
+        return MotionEvent.obtain(time, time, action, x, y, 0);
+    }
+}
@@ -0,0 +1,119 @@
+package com.cugkuan.smalltag;
+
+import android.graphics.Color;
+import android.graphics.Rect;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tag的样式变体引用 {@link TagStyle} 中共享的Paint,按变体分批绘制，不重新计算换行。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmallTagViewVariantTest {
+
+    private static final int HOT = 1;
+
+    private static final int SELECTED = 2;
+
+    private TagStyle style;
+
+    private SmallTagView view;
+
+    @Before
+    public void setUp() {
+        style = TestViews.style()
+                .setTagBackground(Color.GRAY)
+                .setTextColor(Color.BLACK)
+                .addVariant(Color.RED, Color.WHITE)
+                .addVariant(Color.BLUE, Color.WHITE, Color.GREEN, 2)
+                .build();
+        view = TestViews.newView(style);
+        view.setTags(Arrays.asList("数学", "语文", "化学", "生物"));
+        TestViews.layout(view, 300);
+    }
+
+    @Test
+    public void palette_sharedBetweenViews() {
+        assertEquals(3, style.getVariantCount());
+        assertSame(style.getTextPaint(), style.getTextPaint(0));
+        assertEquals(Color.WHITE, style.getTextPaint(HOT).getColor());
+        assertEquals(style.getTextSize(), style.getTextPaint(HOT).getTextSize(), 0);
+        assertEquals(3, new TagStyle.Builder(style).build().getVariantCount());
+    }
+
+    @Test
+    public void setVariant_noLayout_drawsGroupedByVariant() {
+        SmallTagMetrics metrics = new SmallTagMetrics();
+        view.setMetrics(metrics);
+        view.setTagVariant(2, HOT);
+        view.setTagVariant(0, SELECTED);
+        assertFalse(view.isLayoutRequested());
+        assertEquals(0, metrics.getMeasureCount());
+
+        List<String> texts = new ArrayList<>();
+        List<Integer> backgrounds = new ArrayList<>();
+        int borders = 0;
+        SmallTagViewRenderModeTest.RecordCanvas canvas = new SmallTagViewRenderModeTest.RecordCanvas();
+        view.onDraw(canvas);
+        for (String op : canvas.ops) {
+            if (op.startsWith("drawText ")) {
+                texts.add(op.substring("drawText ".length()));
+            } else if (op.startsWith("drawRoundRect ")) {
+                int color = Integer.parseInt(op.substring(op.lastIndexOf(',') + 1));
+                if (color == Color.GREEN) {
+                    borders++;
+                } else {
+                    backgrounds.add(color);
+                }
+            }
+        }
+        assertEquals(Arrays.asList(Color.GRAY, Color.GRAY, Color.RED, Color.BLUE), backgrounds);
+        assertEquals(1, borders);
+        // 默认样式的Tag先绘制，然后依次是各个变体
+        assertEquals(4, texts.size());
+        assertTrue(texts.get(0).startsWith("语文"));
+        assertTrue(texts.get(1).startsWith("生物"));
+        assertTrue(texts.get(2).startsWith("化学"));
+        assertTrue(texts.get(3).startsWith("数学"));
+    }
+
+    @Test
+    public void setVariant_invalidatesOnlyTagBounds() {
+        DirtyRecordingLayout parent = DirtyRecordingLayout.attach(view);
+        view.setTagVariant(1, SELECTED);
+        assertEquals(Collections.singletonList(new Rect(2, 0, 4, 20)), parent.dirtyRects);
+
+        //变体没有变化时不重绘
+        parent.redraw(view);
+        view.setTagVariant(1, SELECTED);
+        assertTrue(parent.dirtyRects.isEmpty());
+    }
+
+    @Test
+    public void tagsChanged_clearsVariants() {
+        view.setTagVariant(1, HOT);
+        view.setTags(Arrays.asList("数学", "语文", "化学", "生物"));
+        assertEquals(HOT, view.getTagVariant(0, 1));
+
+        view.setTags(Collections.singletonList("历史"));
+        assertEquals(0, view.getTagVariant(0, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownVariant_throws() {
+        view.setTagVariant(0, 3);
+    }
+}
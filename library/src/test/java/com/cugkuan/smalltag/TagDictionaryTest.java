@@ -0,0 +1,43 @@
+package com.cugkuan.smalltag;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class TagDictionaryTest {
+
+    /**
+     * 字典中没有测量过的ID,使用View设置的宽度缓存测量；之后共享样式的View不再测量
+     */
+    @Test
+    public void measure_usesViewWidthCache() {
+        TagStyle style = new TagStyle.Builder().setTextPadding(3, 10, 4, 10).build();
+        TagDictionary dictionary = new TagDictionary();
+        int[] ids = {dictionary.intern("数学"), dictionary.intern("语文")};
+
+        TagWidthCache cache = new TagWidthCache(16);
+        SmallTagView first = newView(style, dictionary, cache);
+        first.setTags(ids);
+        TestViews.layout(first, 300);
+        assertEquals(2, cache.missCount());
+
+        //宽度已经按ID保存在字典中，不再查询缓存
+        TagWidthCache otherCache = new TagWidthCache(16);
+        SmallTagView second = newView(style, dictionary, otherCache);
+        second.setTags(ids);
+        TestViews.layout(second, 300);
+        assertEquals(0, otherCache.missCount() + otherCache.hitCount());
+        assertEquals(first.getMeasuredWidth(), second.getMeasuredWidth());
+    }
+
+    private static SmallTagView newView(TagStyle style, TagDictionary dictionary, TagWidthCache cache) {
+        SmallTagView view = TestViews.newView(style);
+        view.setTagDictionary(dictionary);
+        view.setTagWidthCache(cache);
+        return view;
+    }
+}
@@ -0,0 +1,60 @@
+package com.cugkuan.smalltag;
+
+import android.util.AttributeSet;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class TagStyleTest {
+
+    private static final List<String> TAGS = Arrays.asList("数学", "语文", "化学", "生物");
+
+    @Test
+    public void noAttributes_usesDefault() {
+        assertSame(TagStyle.getDefault(), TagStyle.obtain(TestViews.context(), null));
+        SmallTagView view = new SmallTagView(TestViews.context());
+        assertSame(TagStyle.getDefault(), view.getTagStyle());
+    }
+
+    @Test
+    public void sharedStyle_sameAsAttributes() {
+        AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.textPaddingLeft, "4px")
+                .addAttribute(R.attr.textPaddingTop, "10px")
+                .addAttribute(R.attr.textPaddingRight, "4px")
+                .addAttribute(R.attr.textPaddingBottom, "10px")
+                .addAttribute(R.attr.tagHorizontalDivider, "6px")
+                .addAttribute(R.attr.tagVerticalDivider, "3px")
+                .addAttribute(android.R.attr.maxLines, "1")
+                .build();
+        SmallTagView parsed = new SmallTagView(TestViews.context(), attrs);
+
+        TagStyle style = new TagStyle.Builder()
+                .setTextPadding(4, 10, 4, 10)
+                .setDivider(6, 3)
+                .setMaxLines(1)
+                .build();
+        SmallTagView first = TestViews.newView(style);
+        SmallTagView second = TestViews.newView(style);
+        assertSame(first.getTagStyle(), second.getTagStyle());
+
+        assertEquals(measure(parsed), measure(first));
+        assertEquals(measure(parsed), measure(second));
+        assertEquals(parsed.getPrecomputedTagsParams(), first.getPrecomputedTagsParams());
+    }
+
+    private static String measure(SmallTagView view) {
+        view.setTags(TAGS);
+        TestViews.measure(view, 40);
+        return view.getMeasuredWidth() + "x" + view.getMeasuredHeight();
+    }
+}
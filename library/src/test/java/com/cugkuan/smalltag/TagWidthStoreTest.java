@@ -0,0 +1,147 @@
+package com.cugkuan.smalltag;
+
+import android.content.res.Configuration;
+import android.graphics.Paint;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 进程重新启动(新的 {@link TagWidthCache} 和 {@link TagWidthStore})后，已经保存的Tag不再测量。
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TagWidthStoreTest {
+
+    private static final List<String> TAGS = Arrays.asList(
+            "数学", "这是一个很长很长很长很长很长很长很长的Tag", "语文", "Math");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    private Configuration config;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "tag_widths");
+        config = newConfig(1f);
+    }
+
+    @Test
+    public void warmStart_noMeasureText() throws Exception {
+        CountingPaint paint = new CountingPaint();
+        int[] widths = coldStart(paint);
+        assertEquals(TAGS.size(), paint.count);
+
+        //模拟进程重新启动
+        TagWidthStore store = new TagWidthStore(file, config);
+        assertEquals(TAGS.size(), store.load());
+        TagWidthCache cache = new TagWidthCache(16);
+        cache.setStore(store);
+        CountingPaint warmPaint = new CountingPaint();
+        for (int i = 0; i < TAGS.size(); i++) {
+            assertEquals(widths[i], cache.getWidth(TAGS.get(i), warmPaint, 4, 4));
+        }
+        assertEquals(0, warmPaint.count);
+
+        //没有保存过的样式仍然测量
+        warmPaint.setTextSize(30);
+        cache.getWidth(TAGS.get(0), warmPaint, 4, 4);
+        assertEquals(1, warmPaint.count);
+    }
+
+    @Test
+    public void fontScaleChanged_invalidatesFile() throws Exception {
+        coldStart(new CountingPaint());
+
+        TagWidthStore store = new TagWidthStore(file, newConfig(1.3f));
+        assertEquals(0, store.load());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void fontVersionChanged_invalidatesFile() throws Exception {
+        coldStart(new CountingPaint());
+
+        TagWidthStore store = new TagWidthStore(file, config, 1);
+        assertEquals(0, store.load());
+    }
+
+    @Test
+    public void onConfigurationChanged_clears() throws Exception {
+        coldStart(new CountingPaint());
+        TagWidthStore store = new TagWidthStore(file, config);
+        store.load();
+
+        store.onConfigurationChanged(config);
+        assertEquals(TAGS.size(), store.size());
+        store.onConfigurationChanged(newConfig(1.3f));
+        assertEquals(0, store.size());
+        //文件在后台线程中删除
+        TagWidthStore.getExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void corruptFile_ignored() throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[]{0x53, 0x54, 0x57});
+        out.close();
+        TagWidthStore store = new TagWidthStore(file, config);
+        assertEquals(0, store.load());
+    }
+
+    /**
+     * 第一次启动，测量并写入文件
+     */
+    private int[] coldStart(Paint paint) throws Exception {
+        TagWidthStore store = new TagWidthStore(file, config);
+        assertEquals(0, store.load());
+        TagWidthCache cache = new TagWidthCache(16);
+        cache.setStore(store);
+        int[] widths = new int[TAGS.size()];
+        for (int i = 0; i < TAGS.size(); i++) {
+            widths[i] = cache.getWidth(TAGS.get(i), paint, 4, 4);
+        }
+        store.save();
+        return widths;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Configuration newConfig(float fontScale) {
+        Configuration config = new Configuration();
+        config.fontScale = fontScale;
+        config.densityDpi = 320;
+        config.locale = Locale.CHINA;
+        return config;
+    }
+
+    private static class CountingPaint extends Paint {
+
+        int count;
+
+        @Override
+        public float measureText(String text) {
+            count++;
+            return super.measureText(text);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.cugkuan.smalltag;
+
+import android.content.Context;
+import android.view.View;
+
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Robolectric测试共用的Context、样式和测量。
+ */
+final class TestViews {
+
+    private TestViews() {
+    }
+
+    /**
+     * 测试中创建View使用的Context。
+     * <p>
+     * 测试的classpath中没有androidx.test的ApplicationProvider,只在这里使用 RuntimeEnvironment.application
+     */
+    @SuppressWarnings("deprecation")
+    static Context context() {
+        return RuntimeEnvironment.application;
+    }
+
+    /**
+     * Robolectric中字体的高度为0,通过文字的上下边距设置Tag的高度，每个Tag高20;
+     * 文字的宽度等于字符数。
+     */
+    static TagStyle.Builder style() {
+        return new TagStyle.Builder().setTextPadding(0, 10, 0, 10);
+    }
+
+    static SmallTagView newView(TagStyle style) {
+        return new SmallTagView(context(), style);
+    }
+
+    /**
+     * 以最大宽度width测量，高度不限制
+     */
+    static void measure(View view, int width) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+    }
+
+    /**
+     * 测量后布局到测量的大小
+     */
+    static void layout(View view, int width) {
+        measure(view, width);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+}
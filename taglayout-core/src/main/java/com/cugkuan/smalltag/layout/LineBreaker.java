@@ -0,0 +1,140 @@
+package com.cugkuan.smalltag.layout;
+
+/**
+ * Tag的换行计算,只依赖Tag的宽度，不依赖View和Paint,可以在任意线程中使用。
+ */
+final class LineBreaker {
+
+    /**
+     * 计算结果中，所有行的最大宽度(包含左右padding)
+     */
+    int resultWidth;
+    /**
+     * 计算结果的行数
+     */
+    int lineCount;
+    /**
+     * 排列了的Tag个数，超出最大行数的Tag不会被测量和排列
+     */
+    int visibleCount;
+    /**
+     * 本次排列中测量了的Tag个数
+     */
+    int measureCount;
+
+    /**
+     * 截断时接收文字，复用
+     */
+    private final String[] mEllipsized = new String[1];
+
+    /**
+     * 从第start个Tag开始，贪心的逐行排列Tag,一行放不下时换行，每行至少一个Tag。
+     * 结果写入geometry的 layoutWidths、ellipsizedTexts、lines、rows、x、y、lineWidths、lineStarts 中，
+     * start之前的结果保持不变。
+     * <p>
+     * start必须是某一行的第一个Tag，并且start之前的结果是以相同的参数计算的。
+     * 宽度小于0的Tag在排列时才测量，排满maxLines行后停止，之后的Tag不再测量。
+     *
+     * @param geometry          Tags
+     * @param start             开始的Tag
+     * @param maxWidth          可用的宽度
+     * @param horizontalPadding View左右padding之和
+     * @param horizontalDivider 水平方向Tag的间隔
+     * @param verticalDivider   竖直方向Tag的间隔
+     * @param tagHeight         Tag的高度
+     * @param maxLines          最大行数
+     * @param textScale         文字的缩放比例，排列的宽度为 textPadding + (测量的宽度 - textPadding) * textScale
+     * @param textPadding       Tag文字左右内边距之和，不缩放
+     * @param maxTagWidth       Tag排列时的最大宽度，超出时通过ellipsizer截断
+     * @param ellipsizer        为null时不截断
+     * @param measurer          测量还没有测量的Tag
+     * @param table             不为null时，按ID通过table测量
+     */
+    void breakLines(TagGeometry geometry, int start, int maxWidth, int horizontalPadding,
+                    int horizontalDivider, int verticalDivider, int tagHeight, int maxLines,
+                    float textScale, int textPadding, int maxTagWidth, TagEllipsizer ellipsizer,
+                    TagMeasurer measurer, TagTable table) {
+        int count = geometry.count;
+        int[] widths = geometry.widths;
+        int line = 0;
+        float y = 0;
+        int resultWidth = 0;
+        if (start > 0) {
+            line = geometry.lines[start];
+            y = geometry.y[start];
+            for (int i = 0; i < line; i++) {
+                resultWidth = Math.max(resultWidth, geometry.lineWidths[i]);
+            }
+        }
+        int row = 0;
+        int useWidth = horizontalPadding;
+        float x = 0;
+        int measureCount = 0;
+        geometry.lineStarts[line] = start;
+        int i = start;
+        for (; i < count; i++) {
+            int width = widths[i];
+            if (width < 0) {
+                width = table != null ? table.measure(geometry.ids[i], measurer)
+                        : measurer.measure(geometry.texts[i]);
+                widths[i] = width;
+                measureCount++;
+            }
+            if (textScale != 1f) {
+                width = scale(width, textScale, textPadding);
+            }
+            String ellipsized = null;
+            if (ellipsizer != null && width > maxTagWidth) {
+                //截断按原始的文字大小计算，最大宽度换算回缩放前
+                int baseMaxWidth = textScale != 1f
+                        ? textPadding + (int) ((maxTagWidth - textPadding) / textScale) : maxTagWidth;
+                width = ellipsizer.ellipsize(geometry.texts[i], baseMaxWidth, mEllipsized);
+                if (textScale != 1f) {
+                    width = scale(width, textScale, textPadding);
+                }
+                ellipsized = mEllipsized[0];
+                mEllipsized[0] = null;
+            }
+            geometry.ellipsizedTexts[i] = ellipsized;
+            geometry.layoutWidths[i] = width;
+            //是否需要换行的判断
+            if (row > 0 && useWidth + width + horizontalDivider > maxWidth) {
+                if (line + 1 >= maxLines) {
+                    //最后一行已经排满
+                    break;
+                }
+                geometry.lineWidths[line] = useWidth;
+                resultWidth = Math.max(resultWidth, useWidth);
+                row = 0;
+                line++;
+                geometry.lineStarts[line] = i;
+                useWidth = horizontalPadding;
+                x = 0;
+                y = y + tagHeight + verticalDivider;
+            }
+            useWidth = useWidth + width + horizontalDivider;
+            geometry.lines[i] = line;
+            geometry.rows[i] = row;
+            geometry.x[i] = x;
+            geometry.y[i] = y;
+            x = x + width + horizontalDivider;
+            row++;
+        }
+        if (i > 0) {
+            geometry.lineWidths[line] = useWidth;
+            resultWidth = Math.max(resultWidth, useWidth);
+        }
+        this.resultWidth = resultWidth;
+        this.lineCount = i == 0 ? 0 : line + 1;
+        geometry.lineStarts[this.lineCount] = i;
+        this.visibleCount = i;
+        this.measureCount = measureCount;
+    }
+
+    /**
+     * 测量的宽度按文字的缩放比例换算，向上取整，缩放后的文字不会超出Tag
+     */
+    static int scale(int width, float textScale, int textPadding) {
+        return textPadding + (int) Math.ceil((width - textPadding) * textScale);
+    }
+}
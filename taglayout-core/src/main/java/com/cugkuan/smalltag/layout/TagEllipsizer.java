@@ -0,0 +1,17 @@
+package com.cugkuan.smalltag.layout;
+
+/**
+ * 宽度超出时截断Tag的文字，由使用者提供，如Android中使用Paint测量文字的前缀。
+ */
+public interface TagEllipsizer {
+
+    /**
+     * 截断Tag的文字，末尾加上省略号，使Tag的宽度不超过maxWidth
+     *
+     * @param tag      Tag的文字
+     * @param maxWidth Tag的最大宽度，包含文字的左右内边距
+     * @param out      截断后的文字写入 out[0]
+     * @return 截断后Tag的宽度，包含文字的左右内边距
+     */
+    int ellipsize(String tag, int maxWidth, String[] out);
+}
@@ -0,0 +1,122 @@
+package com.cugkuan.smalltag.layout;
+
+import java.util.Arrays;
+
+/**
+ * 所有Tag的文字和几何信息，按数组存放(struct of arrays)。
+ * <p>
+ * 数组只增长不收缩，列表中复用的View重新设置Tags时不会为每个Tag创建对象。
+ */
+final class TagGeometry {
+
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     * Tag的个数
+     */
+    int count;
+    String[] texts = new String[0];
+    /**
+     * 通过 {@link TagTable} 设置时Tag的ID
+     */
+    int[] ids = new int[0];
+    /**
+     * Tag的宽度，包含文字的左右内边距
+     */
+    int[] widths = new int[0];
+    /**
+     * 排列时使用的宽度，文字缩放后由widths计算；没有缩放时与widths相同
+     */
+    int[] layoutWidths = new int[0];
+    /**
+     * 宽度超出时截断后显示的文字，没有截断时为null,只有排列了的Tag有效
+     */
+    String[] ellipsizedTexts = new String[0];
+    /**
+     * 所处的行数
+     */
+    int[] lines = new int[0];
+    /**
+     * 所处的列数
+     */
+    int[] rows = new int[0];
+    /**
+     * Tag左上角相对于内容区域(去掉View padding)的坐标
+     */
+    float[] x = new float[0];
+    float[] y = new float[0];
+    /**
+     * 每一行占用的宽度(包含View左右padding),按行存放
+     */
+    int[] lineWidths = new int[0];
+    /**
+     * 每一行第一个Tag的位置，按行存放，最后一行之后存放排列了的Tag个数
+     */
+    int[] lineStarts = new int[1];
+
+    /**
+     * 保证可以存放capacity个Tag,已有的数据保持不变。
+     */
+    void ensureCapacity(int capacity) {
+        if (widths.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(Math.max(capacity, widths.length * 2), MIN_CAPACITY);
+        texts = Arrays.copyOf(texts, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+        widths = Arrays.copyOf(widths, newCapacity);
+        layoutWidths = Arrays.copyOf(layoutWidths, newCapacity);
+        ellipsizedTexts = Arrays.copyOf(ellipsizedTexts, newCapacity);
+        lines = Arrays.copyOf(lines, newCapacity);
+        rows = Arrays.copyOf(rows, newCapacity);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        lineWidths = Arrays.copyOf(lineWidths, newCapacity);
+        lineStarts = Arrays.copyOf(lineStarts, newCapacity + 1);
+    }
+
+    /**
+     * 将 [from, from + length) 的文字、ID和宽度移动到 to 开始的位置，用于列表部分修改时复用测量结果。
+     */
+    void moveTags(int from, int to, int length) {
+        ensureCapacity(to + length);
+        System.arraycopy(texts, from, texts, to, length);
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(widths, from, widths, to, length);
+    }
+
+    /**
+     * 修改Tag的个数，多出来的文字引用会被释放。
+     */
+    void setCount(int count) {
+        ensureCapacity(count);
+        if (count < this.count) {
+            Arrays.fill(texts, count, this.count, null);
+            Arrays.fill(ellipsizedTexts, count, this.count, null);
+        }
+        this.count = count;
+    }
+
+    /**
+     * 复制另一个TagGeometry的文字、ID和宽度
+     *
+     * @param withLayout 是否同时复制行列和坐标
+     */
+    void copyFrom(TagGeometry other, boolean withLayout) {
+        setCount(other.count);
+        int count = other.count;
+        System.arraycopy(other.texts, 0, texts, 0, count);
+        System.arraycopy(other.ids, 0, ids, 0, count);
+        System.arraycopy(other.widths, 0, widths, 0, count);
+        if (withLayout) {
+            System.arraycopy(other.layoutWidths, 0, layoutWidths, 0, count);
+            System.arraycopy(other.ellipsizedTexts, 0, ellipsizedTexts, 0, count);
+            System.arraycopy(other.lines, 0, lines, 0, count);
+            System.arraycopy(other.rows, 0, rows, 0, count);
+            System.arraycopy(other.x, 0, x, 0, count);
+            System.arraycopy(other.y, 0, y, 0, count);
+            System.arraycopy(other.lineWidths, 0, lineWidths, 0, count);
+            System.arraycopy(other.lineStarts, 0, lineStarts, 0, count + 1);
+        }
+    }
+}
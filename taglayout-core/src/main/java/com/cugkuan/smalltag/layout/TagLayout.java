@@ -0,0 +1,762 @@
+package com.cugkuan.smalltag.layout;
+
+import java.util.List;
+
+/**
+ * Tags的流式布局计算，不依赖Android,可以在任意线程和JVM单元测试中使用。
+ * <p>
+ * 负责Tag的测量(通过 {@link TagMeasurer})、换行以及位置计算，结果按数组存放。
+ * Tag在排列时才测量，排满最大行数后剩下的Tag不再测量和排列，只计入隐藏的个数。
+ * 同一个对象可以反复使用，只在Tag个数增长时分配内存。非线程安全。
+ */
+public final class TagLayout {
+
+    private final TagGeometry mGeometry = new TagGeometry();
+
+    private final LineBreaker mLineBreaker = new LineBreaker();
+
+    private TagMeasurer mMeasurer;
+    /**
+     * 通过ID设置Tags时使用，通过文字设置时为null
+     */
+    private TagTable mTable;
+
+    private int mPaddingLeft;
+    private int mPaddingTop;
+    private int mPaddingRight;
+    private int mPaddingBottom;
+    /**
+     * 水平方向Tag的间隔
+     */
+    private int mHorizontalDivider;
+    /**
+     * 竖直方向Tag的间隔
+     */
+    private int mVerticalDivider;
+    /**
+     * Tag的高度
+     */
+    private int mTagHeight;
+    /**
+     * 最大行数
+     */
+    private int mMaxLines = Integer.MAX_VALUE;
+    /**
+     * 显示的最大个数，在下一次 {@link #setTags(List)} 时生效
+     */
+    private int mMaxTagNum = Integer.MAX_VALUE;
+    /**
+     * 是否在最后显示隐藏的Tag个数，如"+37"
+     */
+    private boolean mShowOverflow;
+    /**
+     * 文字的缩放比例和Tag文字左右内边距之和，见 {@link #setTextScale(float, int)}
+     */
+    private float mTextScale = 1f;
+    private int mTextPadding;
+    /**
+     * 截断过宽的Tag,见 {@link #setEllipsizer(TagEllipsizer)}
+     */
+    private TagEllipsizer mEllipsizer;
+    private int mMaxTagWidth;
+
+    /**
+     * 设置的Tags的总数，包括超过maxTagNum的部分
+     */
+    private int mTotalCount;
+
+    /**
+     * 上一次换行计算的结果中，[0, mValidCount) 的Tag仍然有效
+     */
+    private int mValidCount;
+    /**
+     * Tags 变化后还没有重新计算换行
+     */
+    private boolean mDirty = true;
+    /**
+     * 排列结果的版本，每次重新计算或者复制后增加，用于判断依赖位置的缓存是否有效
+     */
+    private int mGeneration;
+    /**
+     * 上一次换行计算使用的参数，参数变化后需要全部重新计算
+     */
+    private int mLastMaxWidth = -1;
+    private int mLastHorizontalPadding;
+    private int mLastHorizontalDivider;
+    private int mLastVerticalDivider;
+    private int mLastTagHeight;
+    private int mLastMaxLines;
+    private boolean mLastShowOverflow;
+    private float mLastTextScale = 1f;
+    private int mLastTextPadding;
+    private int mLastMaxTagWidth;
+    private boolean mLastEllipsize;
+
+    private int mResultWidth;
+    private int mLineCount;
+    /**
+     * 排列了的Tag个数
+     */
+    private int mVisibleCount;
+    /**
+     * 上一次计算换行时测量了的Tag个数
+     */
+    private int mMeasureCount;
+
+    /**
+     * 隐藏的Tag个数，和用于显示的文字及位置
+     */
+    private int mOverflowCount;
+    private String mOverflowText;
+    private int mOverflowTextCount;
+    private int mOverflowWidth;
+    private float mOverflowX;
+    private float mOverflowY;
+
+    public TagLayout(TagMeasurer measurer) {
+        this.mMeasurer = measurer;
+    }
+
+    /**
+     * 修改测量方式，之前测量的宽度不再有效，需要重新设置Tags
+     */
+    public void setMeasurer(TagMeasurer measurer) {
+        this.mMeasurer = measurer;
+        mGeometry.setCount(0);
+        mValidCount = 0;
+        mDirty = true;
+        mGeneration++;
+    }
+
+    public void setPadding(int left, int top, int right, int bottom) {
+        this.mPaddingLeft = left;
+        this.mPaddingTop = top;
+        this.mPaddingRight = right;
+        this.mPaddingBottom = bottom;
+    }
+
+    public void setDivider(int horizontalDivider, int verticalDivider) {
+        this.mHorizontalDivider = horizontalDivider;
+        this.mVerticalDivider = verticalDivider;
+    }
+
+    public void setTagHeight(int tagHeight) {
+        this.mTagHeight = tagHeight;
+    }
+
+    public void setMaxLines(int maxLines) {
+        this.mMaxLines = maxLines;
+    }
+
+    public void setMaxTagNum(int maxTagNum) {
+        this.mMaxTagNum = maxTagNum;
+    }
+
+    /**
+     * 是否在最后显示隐藏的Tag个数，如"+37",它的宽度在换行时预留
+     */
+    public void setShowOverflow(boolean showOverflow) {
+        this.mShowOverflow = showOverflow;
+    }
+
+    /**
+     * 文字按比例缩放后排列：Tag的宽度为 textPadding + (测量的宽度 - textPadding) * scale,
+     * 不重新测量。用于缩小文字使所有的Tag排列在maxLines行内，Tag的高度通过 {@link #setTagHeight(int)} 设置。
+     *
+     * @param scale       文字的缩放比例，1为不缩放
+     * @param textPadding Tag文字左右内边距之和，不随文字缩放
+     * @see #layoutToFit(int, int, int, int)
+     */
+    public void setTextScale(float scale, int textPadding) {
+        this.mTextScale = scale;
+        this.mTextPadding = textPadding;
+    }
+
+    public float getTextScale() {
+        return mTextScale;
+    }
+
+    /**
+     * 宽度超出可用宽度(或者 {@link #setMaxTagWidth(int)})的Tag截断后显示，为null时不截断。
+     * <p>
+     * 判断是否需要重新排列时只比较是否截断，换成截断方式不同的实例后需要重新设置Tags
+     */
+    public void setEllipsizer(TagEllipsizer ellipsizer) {
+        this.mEllipsizer = ellipsizer;
+    }
+
+    /**
+     * Tag的最大宽度(包含文字的左右内边距)，设置了 {@link #setEllipsizer(TagEllipsizer)} 时有效；
+     * 为0时只限制为可用宽度
+     */
+    public void setMaxTagWidth(int maxTagWidth) {
+        this.mMaxTagWidth = maxTagWidth;
+    }
+
+    /**
+     * 设置Tags,和之前的Tags比较，相同的前缀和后缀保留测量结果，并且只从第一个变化的行开始重新换行。
+     * 变化的Tag在 {@link #layout(int)} 中排列时才测量。
+     *
+     * @return Tags 是否发生了变化
+     */
+    public boolean setTags(List<String> tags) {
+        TagGeometry geometry = mGeometry;
+        int size = Math.min(mMaxTagNum, tags.size());
+        int oldSize = geometry.count;
+        int maxSame = mTable == null ? Math.min(oldSize, size) : 0;
+        int prefix = 0;
+        while (prefix < maxSame && equals(geometry.texts[prefix], tags.get(prefix))) {
+            prefix++;
+        }
+        if (prefix == size && size == oldSize && mTotalCount == tags.size() && mTable == null) {
+            return false;
+        }
+        mTable = null;
+        mTotalCount = tags.size();
+        int suffix = 0;
+        while (suffix < maxSame - prefix
+                && equals(geometry.texts[oldSize - 1 - suffix], tags.get(size - 1 - suffix))) {
+            suffix++;
+        }
+        if (suffix > 0 && oldSize != size) {
+            geometry.moveTags(oldSize - suffix, size - suffix, suffix);
+        }
+        geometry.setCount(size);
+        for (int i = prefix; i < size - suffix; i++) {
+            geometry.texts[i] = tags.get(i);
+            geometry.widths[i] = -1;
+        }
+        mValidCount = Math.min(mValidCount, prefix);
+        mDirty = true;
+        return true;
+    }
+
+    /**
+     * 以ID设置Tags,只比较ID,不比较文字，不测量；相同的前缀和后缀保留测量结果。
+     * 变化的Tag在 {@link #layout(int)} 中排列时通过table测量。
+     *
+     * @param ids   Tags的ID
+     * @param count ids中Tag的个数
+     * @param table ID对应的文字和宽度
+     * @return Tags 是否发生了变化
+     */
+    public boolean setTags(int[] ids, int count, TagTable table) {
+        TagGeometry geometry = mGeometry;
+        int size = Math.min(mMaxTagNum, count);
+        int oldSize = geometry.count;
+        int maxSame = table == mTable ? Math.min(oldSize, size) : 0;
+        int[] oldIds = geometry.ids;
+        int prefix = 0;
+        while (prefix < maxSame && oldIds[prefix] == ids[prefix]) {
+            prefix++;
+        }
+        if (prefix == size && size == oldSize && mTotalCount == count && table == mTable) {
+            return false;
+        }
+        mTable = table;
+        mTotalCount = count;
+        int suffix = 0;
+        while (suffix < maxSame - prefix && oldIds[oldSize - 1 - suffix] == ids[size - 1 - suffix]) {
+            suffix++;
+        }
+        if (suffix > 0 && oldSize != size) {
+            geometry.moveTags(oldSize - suffix, size - suffix, suffix);
+        }
+        geometry.setCount(size);
+        for (int i = prefix; i < size - suffix; i++) {
+            int id = ids[i];
+            geometry.ids[i] = id;
+            geometry.texts[i] = table.getText(id);
+            geometry.widths[i] = -1;
+        }
+        mValidCount = Math.min(mValidCount, prefix);
+        mDirty = true;
+        return true;
+    }
+
+    /**
+     * 复制另一个TagLayout的Tags和测量结果
+     *
+     * @param withLayout 是否同时复制换行的结果，复制后以相同的参数调用 {@link #layout(int)} 时不再计算
+     */
+    public void copyFrom(TagLayout other, boolean withLayout) {
+        mGeometry.copyFrom(other.mGeometry, withLayout);
+        mTotalCount = other.mTotalCount;
+        mTable = other.mTable;
+        mMeasureCount = 0;
+        if (withLayout) {
+            mValidCount = other.mValidCount;
+            mLastMaxWidth = other.mLastMaxWidth;
+            mLastHorizontalPadding = other.mLastHorizontalPadding;
+            mLastHorizontalDivider = other.mLastHorizontalDivider;
+            mLastVerticalDivider = other.mLastVerticalDivider;
+            mLastTagHeight = other.mLastTagHeight;
+            mLastMaxLines = other.mLastMaxLines;
+            mLastShowOverflow = other.mLastShowOverflow;
+            mLastTextScale = other.mLastTextScale;
+            mLastTextPadding = other.mLastTextPadding;
+            mLastMaxTagWidth = other.mLastMaxTagWidth;
+            mLastEllipsize = other.mLastEllipsize;
+            mResultWidth = other.mResultWidth;
+            mLineCount = other.mLineCount;
+            mVisibleCount = other.mVisibleCount;
+            mOverflowCount = other.mOverflowCount;
+            mOverflowText = other.mOverflowText;
+            mOverflowTextCount = other.mOverflowTextCount;
+            mOverflowWidth = other.mOverflowWidth;
+            mOverflowX = other.mOverflowX;
+            mOverflowY = other.mOverflowY;
+            mDirty = other.mDirty;
+        } else {
+            mValidCount = 0;
+            mDirty = true;
+        }
+        mGeneration++;
+    }
+
+    /**
+     * Tags的内容的hash,只与Tags(文字或者ID)和总数有关，与测量和排列无关
+     */
+    public int getContentHash() {
+        TagGeometry geometry = mGeometry;
+        int hash = mTotalCount;
+        for (int i = 0; i < geometry.count; i++) {
+            hash = 31 * hash + (mTable != null ? geometry.ids[i]
+                    : geometry.texts[i] == null ? 0 : geometry.texts[i].hashCode());
+        }
+        return hash;
+    }
+
+    /**
+     * 是否与other的Tags相同，通过ID设置时只比较ID
+     */
+    public boolean hasSameTags(TagLayout other) {
+        TagGeometry geometry = mGeometry;
+        int count = geometry.count;
+        if (other.mGeometry.count != count || other.mTotalCount != mTotalCount
+                || other.mTable != mTable) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (mTable != null ? other.mGeometry.ids[i] != geometry.ids[i]
+                    : !equals(other.mGeometry.texts[i], geometry.texts[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 以当前的参数调用 {@link #layout(int)} 时是否需要计算
+     */
+    public boolean needsLayout(int maxWidth) {
+        return mDirty || isParamsChanged(maxWidth);
+    }
+
+    private boolean isParamsChanged(int maxWidth) {
+        return maxWidth != mLastMaxWidth
+                || mPaddingLeft + mPaddingRight != mLastHorizontalPadding
+                || mHorizontalDivider != mLastHorizontalDivider
+                || mVerticalDivider != mLastVerticalDivider
+                || mTagHeight != mLastTagHeight
+                || mMaxLines != mLastMaxLines
+                || mShowOverflow != mLastShowOverflow
+                || mTextScale != mLastTextScale
+                //不缩放时内边距不影响排列
+                || (mTextScale != 1f && mTextPadding != mLastTextPadding)
+                //只比较是否截断，不比较实例：同一样式的View各自创建ellipsizer,截断的结果相同
+                || (mEllipsizer != null) != mLastEllipsize
+                || (mEllipsizer != null && mMaxTagWidth != mLastMaxTagWidth);
+    }
+
+    /**
+     * 在maxWidth的宽度内计算换行，只计算上一次计算后发生了变化的部分。
+     *
+     * @param maxWidth 可用的宽度，包含左右padding
+     */
+    public void layout(int maxWidth) {
+        TagGeometry geometry = mGeometry;
+        int horizontalPadding = mPaddingLeft + mPaddingRight;
+        boolean paramsChanged = isParamsChanged(maxWidth);
+        if (!paramsChanged && !mDirty) {
+            return;
+        }
+        int valid = paramsChanged ? 0 : Math.min(mValidCount, geometry.count);
+        //从第一个变化的Tag的前一个Tag所在行的行首开始
+        int start = valid == 0 ? 0 : valid - 1 - geometry.rows[valid - 1];
+        mLineBreaker.breakLines(geometry, start, maxWidth, horizontalPadding,
+                mHorizontalDivider, mVerticalDivider, mTagHeight, mMaxLines,
+                mTextScale, mTextPadding, getMaxTagWidth(maxWidth, horizontalPadding), mEllipsizer,
+                mMeasurer, mTable);
+        mResultWidth = mLineBreaker.resultWidth;
+        mLineCount = mLineBreaker.lineCount;
+        mVisibleCount = mLineBreaker.visibleCount;
+        mMeasureCount = mLineBreaker.measureCount;
+        mOverflowCount = mTotalCount - mVisibleCount;
+        if (mShowOverflow && mOverflowCount > 0) {
+            layoutOverflow(maxWidth, horizontalPadding);
+        }
+        //隐藏个数的Tag可能减少了最后一行的Tag
+        geometry.lineStarts[mLineCount] = mVisibleCount;
+        mValidCount = mVisibleCount;
+        mDirty = false;
+        mGeneration++;
+        mLastMaxWidth = maxWidth;
+        mLastHorizontalPadding = horizontalPadding;
+        mLastHorizontalDivider = mHorizontalDivider;
+        mLastVerticalDivider = mVerticalDivider;
+        mLastTagHeight = mTagHeight;
+        mLastMaxLines = mMaxLines;
+        mLastShowOverflow = mShowOverflow;
+        mLastTextScale = mTextScale;
+        mLastTextPadding = mTextPadding;
+        mLastMaxTagWidth = mMaxTagWidth;
+        mLastEllipsize = mEllipsizer != null;
+    }
+
+    /**
+     * 截断时Tag的最大宽度，不超过可用宽度
+     */
+    private int getMaxTagWidth(int maxWidth, int horizontalPadding) {
+        int available = Math.max(maxWidth - horizontalPadding, 0);
+        return mMaxTagWidth > 0 ? Math.min(mMaxTagWidth, available) : available;
+    }
+
+    /**
+     * 在 [minTextSize, textSize] 中找到使所有的Tag(maxTagNum以内)排列在maxLines行内的最大文字大小，
+     * 并以它排列。每个Tag只以原始大小测量一次，之后的每次尝试按比例换算宽度，只计算换行，二分查找。
+     * <p>
+     * 最小的文字大小也放不下时以minTextSize排列，超出的Tag隐藏。调用前设置的文字缩放比例会被覆盖；
+     * 排列后按返回的大小设置Tag的高度，再调用一次 {@link #layout(int)}。
+     *
+     * @param maxWidth    可用的宽度，包含左右padding
+     * @param textSize    测量时使用的文字大小
+     * @param minTextSize 最小的文字大小
+     * @param textPadding Tag文字左右内边距之和，不随文字缩放
+     * @return 排列使用的文字大小
+     */
+    public int layoutToFit(int maxWidth, int textSize, int minTextSize, int textPadding) {
+        setTextScale(1f, textPadding);
+        layout(maxWidth);
+        int measureCount = mMeasureCount;
+        int count = mGeometry.count;
+        if (mVisibleCount == count || minTextSize >= textSize) {
+            return textSize;
+        }
+        measureCount += measureAll();
+        int low = minTextSize;
+        int high = textSize - 1;
+        int best = minTextSize;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            setTextScale((float) mid / textSize, textPadding);
+            layout(maxWidth);
+            measureCount += mMeasureCount;
+            if (mVisibleCount == count) {
+                best = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        //最后一次尝试不是结果时重新排列
+        setTextScale((float) best / textSize, textPadding);
+        if (needsLayout(maxWidth)) {
+            layout(maxWidth);
+            measureCount += mMeasureCount;
+        }
+        mMeasureCount = measureCount;
+        return best;
+    }
+
+    /**
+     * 测量所有还没有测量的Tag(包括超出最大行数的)
+     *
+     * @return 本次测量的个数
+     */
+    public int measureAll() {
+        TagGeometry geometry = mGeometry;
+        int measured = 0;
+        for (int i = 0; i < geometry.count; i++) {
+            if (geometry.widths[i] < 0) {
+                geometry.widths[i] = mTable != null ? mTable.measure(geometry.ids[i], mMeasurer)
+                        : mMeasurer.measure(geometry.texts[i]);
+                measured++;
+            }
+        }
+        return measured;
+    }
+
+    /**
+     * 在最后一行的末尾放置隐藏个数的Tag。放不下时，还没有达到最大行数(只因为maxTagNum隐藏)则放在新的一行；
+     * 否则将最后一行的Tag移到隐藏中，直到放得下或者这一行只剩它自己。
+     */
+    private void layoutOverflow(int maxWidth, int horizontalPadding) {
+        TagGeometry geometry = mGeometry;
+        geometry.ensureCapacity(mLineCount + 1);
+        int visible = mVisibleCount;
+        int line = Math.max(mLineCount - 1, 0);
+        int lineWidth = mLineCount == 0 ? horizontalPadding : geometry.lineWidths[line];
+        int width = measureOverflow(mTotalCount - visible);
+        if (mLineCount > 0 && mLineCount < mMaxLines
+                && lineWidth + width + mHorizontalDivider > maxWidth) {
+            line = mLineCount;
+            lineWidth = horizontalPadding;
+            geometry.lineStarts[line] = visible;
+        } else {
+            while (true) {
+                boolean lineEmpty = visible == 0 || geometry.lines[visible - 1] != line;
+                if (lineEmpty || lineWidth + width + mHorizontalDivider <= maxWidth) {
+                    break;
+                }
+                visible--;
+                lineWidth -= geometry.layoutWidths[visible] + mHorizontalDivider;
+                width = measureOverflow(mTotalCount - visible);
+            }
+        }
+        mVisibleCount = visible;
+        mOverflowCount = mTotalCount - visible;
+        mOverflowWidth = width;
+        mOverflowX = lineWidth - horizontalPadding;
+        mOverflowY = line * (mTagHeight + mVerticalDivider);
+        lineWidth += width + mHorizontalDivider;
+        geometry.lineWidths[line] = lineWidth;
+        mLineCount = line + 1;
+        mResultWidth = 0;
+        for (int i = 0; i <= line; i++) {
+            mResultWidth = Math.max(mResultWidth, geometry.lineWidths[i]);
+        }
+    }
+
+    /**
+     * 测量隐藏个数的Tag,宽度按文字的缩放比例换算
+     */
+    private int measureOverflow(int count) {
+        int width = mMeasurer.measure(getOverflowText(count));
+        if (mTextScale != 1f) {
+            width = LineBreaker.scale(width, mTextScale, mTextPadding);
+        }
+        mMeasureCount++;
+        return width;
+    }
+
+    /**
+     * 隐藏个数的文字，个数不变时复用
+     */
+    private String getOverflowText(int count) {
+        if (mOverflowText == null || count != mOverflowTextCount) {
+            mOverflowText = "+" + count;
+            mOverflowTextCount = count;
+        }
+        return mOverflowText;
+    }
+
+    public int getTagCount() {
+        return mGeometry.count;
+    }
+
+    /**
+     * 设置的Tags的总数，包括超出maxTagNum的
+     */
+    public int getTotalTagCount() {
+        return mTotalCount;
+    }
+
+    public String getText(int index) {
+        return mGeometry.texts[index];
+    }
+
+    /**
+     * 绘制的文字，宽度超出被截断时为截断后的文字，只有 [0, getVisibleTagCount()) 的Tag有效
+     */
+    public String getDisplayText(int index) {
+        String ellipsized = mGeometry.ellipsizedTexts[index];
+        return ellipsized != null ? ellipsized : mGeometry.texts[index];
+    }
+
+    /**
+     * Tag排列时的宽度(文字缩放后)，只有 [0, getVisibleTagCount()) 的Tag有效
+     */
+    public int getTagWidth(int index) {
+        return mGeometry.layoutWidths[index];
+    }
+
+    public int getTagHeight() {
+        return mTagHeight;
+    }
+
+    /**
+     * 排列结果的版本，位置和宽度没有变化时不变
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Tag所处的行
+     */
+    public int getLine(int index) {
+        return mGeometry.lines[index];
+    }
+
+    /**
+     * Tag所处的列
+     */
+    public int getRow(int index) {
+        return mGeometry.rows[index];
+    }
+
+    /**
+     * Tag左边相对于内容区域(去掉padding)的坐标
+     */
+    public float getX(int index) {
+        return mGeometry.x[index];
+    }
+
+    /**
+     * Tag顶部相对于内容区域(去掉padding)的坐标
+     */
+    public float getY(int index) {
+        return mGeometry.y[index];
+    }
+
+    /**
+     * 排列了的Tag个数，[0, getVisibleTagCount()) 的Tag有位置信息，之后的Tag没有测量和排列
+     */
+    public int getVisibleTagCount() {
+        return mVisibleCount;
+    }
+
+    /**
+     * 上一次 {@link #layout(int)} 或者 {@link #layoutToFit(int, int, int, int)} 中测量了的Tag个数(包括隐藏个数的Tag),复制的结果为0
+     */
+    public int getMeasureCount() {
+        return mMeasureCount;
+    }
+
+    /**
+     * 隐藏的Tag个数，包括超出最大行数和maxTagNum的Tag
+     */
+    public int getOverflowCount() {
+        return mOverflowCount;
+    }
+
+    /**
+     * 显示隐藏个数的文字，如"+37",没有开启或者没有隐藏的Tag时为null
+     */
+    public String getOverflowText() {
+        return mShowOverflow && mOverflowCount > 0 ? mOverflowText : null;
+    }
+
+    public int getOverflowWidth() {
+        return mOverflowWidth;
+    }
+
+    public float getOverflowX() {
+        return mOverflowX;
+    }
+
+    public float getOverflowY() {
+        return mOverflowY;
+    }
+
+    /**
+     * 排列的行数，不超过maxLines
+     */
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    /**
+     * 第line行的第一个Tag的位置，[getLineStart(line), getLineStart(line + 1)) 是第line行的Tag
+     *
+     * @param line [0, getLineCount()],为getLineCount()时返回排列了的Tag个数
+     */
+    public int getLineStart(int line) {
+        return mGeometry.lineStarts[line];
+    }
+
+    /**
+     * 内容区域(去掉View padding)中竖直坐标y所在的行，行高固定，直接计算。
+     * y在第一行之上时为0,在最后一行之下时为最后一行；行之间的间隔属于上一行。
+     */
+    public int getLineForVertical(float y) {
+        int lineHeight = mTagHeight + mVerticalDivider;
+        if (mLineCount == 0 || y <= 0 || lineHeight <= 0) {
+            return 0;
+        }
+        return (int) Math.min(y / lineHeight, mLineCount - 1);
+    }
+
+    /**
+     * 显示的行数
+     */
+    public int getVisibleLineCount() {
+        return Math.min(mLineCount, mMaxLines);
+    }
+
+    /**
+     * 所有行中最大的宽度，包含左右padding
+     */
+    public int getResultWidth() {
+        return mResultWidth;
+    }
+
+    /**
+     * 显示的行占用的高度，包含上下padding
+     */
+    public int getResultHeight() {
+        int lines = getVisibleLineCount();
+        if (lines == 0) {
+            return mPaddingTop + mPaddingBottom;
+        }
+        return mTagHeight * lines + mVerticalDivider * (lines - 1) + mPaddingTop + mPaddingBottom;
+    }
+
+    /**
+     * 查找坐标所在的Tag,按行高计算所在的行，通过每一行的起始位置得到这一行的Tag,再在这一行中按x二分查找。
+     * "+N" 的Tag不参与查找。
+     *
+     * @param x 相对于第一个Tag左边的坐标，即不包含左padding
+     * @param y 相对于第一行顶部的坐标，即不包含上padding
+     * @return Tag的位置，没有时返回-1
+     */
+    public int getTagAt(float x, float y) {
+        int count = mVisibleCount;
+        int lineHeight = mTagHeight + mVerticalDivider;
+        if (count == 0 || x < 0 || y < 0 || lineHeight <= 0) {
+            return -1;
+        }
+        int line = (int) (y / lineHeight);
+        if (line >= mLineCount || y - line * lineHeight >= mTagHeight) {
+            //在最后一行之下，或者在行之间的间隔中
+            return -1;
+        }
+        TagGeometry geometry = mGeometry;
+        int start = geometry.lineStarts[line];
+        int end = geometry.lineStarts[line + 1];
+        if (start == end) {
+            return -1;
+        }
+        //x不大于目标x的最后一个Tag
+        float[] xs = geometry.x;
+        int low = start;
+        int high = end - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (xs[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (x < xs[low] || x >= xs[low] + geometry.layoutWidths[low]) {
+            return -1;
+        }
+        return low;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
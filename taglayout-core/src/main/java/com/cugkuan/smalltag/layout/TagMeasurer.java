@@ -0,0 +1,15 @@
+package com.cugkuan.smalltag.layout;
+
+/**
+ * Tag宽度的测量，由使用者提供，如Android中使用Paint进行测量。
+ */
+public interface TagMeasurer {
+
+    /**
+     * 测量Tag的宽度
+     *
+     * @param tag Tag的文字
+     * @return Tag的宽度，包含文字的左右内边距
+     */
+    int measure(String tag);
+}
@@ -0,0 +1,22 @@
+package com.cugkuan.smalltag.layout;
+
+/**
+ * 以int ID表示的Tags,ID相同的Tag文字相同，测量结果可以按ID缓存。
+ * <p>
+ * 通过 {@link TagLayout#setTags(int[], int, TagTable)} 设置Tags时，只比较ID,不比较文字。
+ */
+public interface TagTable {
+
+    /**
+     * ID对应的文字
+     */
+    String getText(int id);
+
+    /**
+     * 测量Tag的宽度，没有保存这个ID的宽度时使用measurer测量
+     *
+     * @param measurer 排列使用的 {@link TagMeasurer},即 {@link TagLayout} 自己的
+     * @return Tag的宽度，包含文字的左右内边距
+     */
+    int measure(int id, TagMeasurer measurer);
+}
@@ -0,0 +1,417 @@
+package com.cugkuan.smalltag.layout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TagLayoutTest {
+
+    /**
+     * 每个字符宽10,不包含内边距
+     */
+    private static final TagMeasurer MEASURER = new TagMeasurer() {
+        @Override
+        public int measure(String tag) {
+            return tag.length() * 10;
+        }
+    };
+
+    private TagLayout layout;
+
+    @Before
+    public void setUp() {
+        layout = new TagLayout(MEASURER);
+        layout.setTagHeight(20);
+    }
+
+    @Test
+    public void singleLine() {
+        layout.setTags(Arrays.asList("ab", "cde", "f"));
+        layout.layout(100);
+
+        assertEquals(1, layout.getLineCount());
+        assertEquals(60, layout.getResultWidth());
+        assertEquals(20, layout.getResultHeight());
+        assertEquals(0f, layout.getX(0), 0);
+        assertEquals(20f, layout.getX(1), 0);
+        assertEquals(50f, layout.getX(2), 0);
+        assertEquals(2, layout.getRow(2));
+    }
+
+    @Test
+    public void wrapWithDividerAndPadding() {
+        layout.setPadding(5, 3, 5, 4);
+        layout.setDivider(2, 6);
+        layout.setTags(Arrays.asList("aaaa", "bbbb", "cccc"));
+        // 10 + (40 + 2) * 2 = 94 <= 100, 第三个放不下
+        layout.layout(100);
+
+        assertEquals(2, layout.getLineCount());
+        assertEquals(0, layout.getLine(1));
+        assertEquals(1, layout.getLine(2));
+        assertEquals(0, layout.getRow(2));
+        assertEquals(42f, layout.getX(1), 0);
+        assertEquals(0f, layout.getX(2), 0);
+        assertEquals(26f, layout.getY(2), 0);
+        assertEquals(94, layout.getResultWidth());
+        assertEquals(20 * 2 + 6 + 3 + 4, layout.getResultHeight());
+    }
+
+    @Test
+    public void tagWiderThanLine_takesOwnLine() {
+        layout.setTags(Arrays.asList("a", "this is a very long tag", "b"));
+        layout.layout(50);
+
+        assertEquals(3, layout.getLineCount());
+        assertEquals(1, layout.getLine(1));
+        assertEquals(0, layout.getRow(1));
+        assertEquals(2, layout.getLine(2));
+    }
+
+    @Test
+    public void maxLines_limitsHeight() {
+        layout.setMaxLines(2);
+        layout.setTags(Arrays.asList("aaaa", "bbbb", "cccc", "dddd", "eeee"));
+        layout.layout(50);
+
+        assertEquals(2, layout.getLineCount());
+        assertEquals(2, layout.getVisibleLineCount());
+        assertEquals(2, layout.getVisibleTagCount());
+        assertEquals(3, layout.getOverflowCount());
+        assertEquals(40, layout.getResultHeight());
+    }
+
+    @Test
+    public void maxLines_stopsMeasuring() {
+        CountingMeasurer measurer = new CountingMeasurer();
+        TagLayout layout = new TagLayout(measurer);
+        layout.setMaxLines(2);
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tags.add("tag" + i);
+        }
+        layout.setTags(tags);
+        assertEquals(0, measurer.count);
+
+        // 每个Tag宽50,每行2个
+        layout.layout(100);
+        assertEquals(4, layout.getVisibleTagCount());
+        assertEquals(196, layout.getOverflowCount());
+        // 排满两行后，只多测量了一个放不下的Tag
+        assertEquals(5, measurer.count);
+        assertEquals(5, layout.getMeasureCount());
+    }
+
+    @Test
+    public void overflowIndicator_maxTagNum_wrapsToNewLine() {
+        layout.setMaxTagNum(3);
+        layout.setShowOverflow(true);
+        layout.setTags(Arrays.asList("a", "b", "c", "d", "e"));
+        layout.layout(31);
+
+        // 没有行数限制时 "+2" 放在新的一行，不隐藏已经排列的Tag
+        assertEquals(3, layout.getVisibleTagCount());
+        assertEquals("+2", layout.getOverflowText());
+        assertEquals(0f, layout.getOverflowX(), 0);
+        assertEquals(20f, layout.getOverflowY(), 0);
+        assertEquals(2, layout.getLineCount());
+        assertEquals(30, layout.getResultWidth());
+    }
+
+    @Test
+    public void overflowIndicator_reservesWidth() {
+        layout.setMaxLines(2);
+        layout.setShowOverflow(true);
+        layout.setTags(Arrays.asList("aaaa", "bbbb", "cccc", "dddd", "eeee"));
+        layout.layout(90);
+
+        // 每行放两个Tag,第二行放不下 "dddd" 和 "+2" (40 + 40 + 20 > 90),"dddd" 被隐藏
+        assertEquals(3, layout.getVisibleTagCount());
+        assertEquals(2, layout.getOverflowCount());
+        assertEquals("+2", layout.getOverflowText());
+        assertEquals(20, layout.getOverflowWidth());
+        assertEquals(40f, layout.getOverflowX(), 0);
+        assertEquals(20f, layout.getOverflowY(), 0);
+        assertEquals(2, layout.getLineCount());
+        assertEquals(80, layout.getResultWidth());
+
+        // 一行可以放下所有的Tag,不显示溢出的Tag
+        layout.layout(200);
+        assertEquals(5, layout.getVisibleTagCount());
+        assertEquals(0, layout.getOverflowCount());
+        assertEquals(null, layout.getOverflowText());
+    }
+
+    @Test
+    public void layoutToFit_shrinksWithOneMeasurePass() {
+        CountingMeasurer measurer = new CountingMeasurer();
+        TagLayout layout = new TagLayout(measurer);
+        layout.setMaxLines(1);
+        layout.setTags(Arrays.asList("a", "b", "c", "d"));
+        // 每个Tag宽50,其中文字40、内边距10;文字大小s时宽 10 + 2s,一行放下4个需要 s <= 10
+        assertEquals(10, layout.layoutToFit(120, 20, 8, 10));
+        assertEquals(4, layout.getVisibleTagCount());
+        assertEquals(30, layout.getTagWidth(0));
+        assertEquals(90f, layout.getX(3), 0);
+        // 二分查找只计算换行，每个Tag只测量一次
+        assertEquals(4, measurer.count);
+        assertEquals(4, layout.getMeasureCount());
+        assertFalse(layout.needsLayout(120));
+
+        // 最小的文字大小也放不下时，以最小的文字大小排列
+        assertEquals(8, layout.layoutToFit(100, 20, 8, 10));
+        assertEquals(3, layout.getVisibleTagCount());
+        assertEquals(4, measurer.count);
+
+        // 不缩小也能放下
+        assertEquals(20, layout.layoutToFit(300, 20, 8, 10));
+        assertEquals(50, layout.getTagWidth(0));
+    }
+
+    @Test
+    public void ellipsizer_truncatesOversizedTags() {
+        layout.setEllipsizer(new TagEllipsizer() {
+            @Override
+            public int ellipsize(String tag, int maxWidth, String[] out) {
+                int length = maxWidth / 10 - 1;
+                out[0] = tag.substring(0, length) + "…";
+                return (length + 1) * 10;
+            }
+        });
+        layout.setTags(Arrays.asList("ab", "abcdefghij"));
+        layout.layout(60);
+        assertEquals(2, layout.getLineCount());
+        assertEquals("ab", layout.getDisplayText(0));
+        assertEquals("abcde…", layout.getDisplayText(1));
+        assertEquals("abcdefghij", layout.getText(1));
+        assertEquals(60, layout.getTagWidth(1));
+
+        layout.setMaxTagWidth(30);
+        assertTrue(layout.needsLayout(60));
+        layout.layout(60);
+        assertEquals("ab…", layout.getDisplayText(1));
+        assertEquals(1, layout.getLineCount());
+
+        layout.setEllipsizer(null);
+        layout.layout(60);
+        assertEquals("abcdefghij", layout.getDisplayText(1));
+        assertEquals(100, layout.getTagWidth(1));
+    }
+
+    @Test
+    public void getTagAt_findsTagByPosition() {
+        layout.setDivider(2, 6);
+        layout.setTags(Arrays.asList("aaaa", "bb", "cccc", "d"));
+        // 第一行 aaaa[0,40) bb[42,62),第二行 cccc[0,40) d[42,52),行高20,间隔6
+        layout.layout(70);
+
+        assertEquals(0, layout.getTagAt(0, 0));
+        assertEquals(0, layout.getTagAt(39, 19));
+        assertEquals(-1, layout.getTagAt(41, 5));
+        assertEquals(1, layout.getTagAt(42, 5));
+        assertEquals(-1, layout.getTagAt(62, 5));
+        assertEquals(-1, layout.getTagAt(10, 22));
+        assertEquals(2, layout.getTagAt(10, 26));
+        assertEquals(3, layout.getTagAt(51, 45));
+        assertEquals(-1, layout.getTagAt(10, 46));
+        assertEquals(-1, layout.getTagAt(-1, 0));
+    }
+
+    @Test
+    public void lineStarts_andLineForVertical() {
+        layout.setDivider(2, 6);
+        layout.setMaxLines(2);
+        layout.setShowOverflow(true);
+        layout.setTags(Arrays.asList("aaaa", "bb", "cccc", "d", "eeee", "ff"));
+        // 第一行 aaaa bb,第二行放不下 cccc d "+3",只有 cccc 和 "+3"
+        layout.layout(70);
+
+        assertEquals(0, layout.getLineStart(0));
+        assertEquals(2, layout.getLineStart(1));
+        assertEquals(3, layout.getLineStart(2));
+        assertEquals("+3", layout.getOverflowText());
+        assertEquals(0, layout.getLineForVertical(-10));
+        assertEquals(0, layout.getLineForVertical(25));
+        assertEquals(1, layout.getLineForVertical(26));
+        assertEquals(1, layout.getLineForVertical(1000));
+    }
+
+    @Test
+    public void maxTagNum_limitsTags() {
+        layout.setMaxTagNum(2);
+        layout.setTags(Arrays.asList("a", "b", "c", "d"));
+        layout.layout(100);
+
+        assertEquals(2, layout.getTagCount());
+        assertEquals("b", layout.getText(1));
+    }
+
+    @Test
+    public void sameTags_notChanged() {
+        assertTrue(layout.setTags(Arrays.asList("a", "b")));
+        assertFalse(layout.setTags(new ArrayList<>(Arrays.asList("a", "b"))));
+        assertTrue(layout.setTags(Arrays.asList("a", "c")));
+    }
+
+    @Test
+    public void partialChange_sameAsFullLayout() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            int width = 60 + random.nextInt(200);
+            List<String> tags = randomTags(random, 1 + random.nextInt(30));
+            layout.setTags(tags);
+            layout.layout(width);
+
+            List<String> changed = new ArrayList<>(tags);
+            int index = random.nextInt(changed.size());
+            switch (random.nextInt(3)) {
+                case 0:
+                    changed.set(index, randomTag(random));
+                    break;
+                case 1:
+                    changed.remove(index);
+                    break;
+                default:
+                    changed.add(index, randomTag(random));
+                    break;
+            }
+            layout.setTags(changed);
+            layout.layout(width);
+
+            TagLayout expected = new TagLayout(MEASURER);
+            expected.setTagHeight(20);
+            expected.setTags(changed);
+            expected.layout(width);
+            assertSameLayout(expected, layout);
+        }
+    }
+
+    @Test
+    public void copyFrom_reusesLayout() {
+        TagLayout source = new TagLayout(MEASURER);
+        source.setTagHeight(20);
+        source.setTags(Arrays.asList("aaaa", "bbbb", "cccc"));
+        source.layout(100);
+
+        layout.copyFrom(source, true);
+        layout.layout(100);
+        assertSameLayout(source, layout);
+
+        layout.layout(50);
+        assertEquals(3, layout.getLineCount());
+    }
+
+    @Test
+    public void copyFrom_sameTagsAndParams_noLayoutNeeded() {
+        TagLayout source = new TagLayout(MEASURER);
+        source.setTagHeight(20);
+        source.setTags(Arrays.asList("aaaa", "bbbb", "cccc"));
+        source.layout(100);
+
+        layout.setTags(new ArrayList<>(Arrays.asList("aaaa", "bbbb", "cccc")));
+        assertEquals(source.getContentHash(), layout.getContentHash());
+        assertTrue(layout.hasSameTags(source));
+        assertTrue(layout.needsLayout(100));
+
+        layout.copyFrom(source, true);
+        assertFalse(layout.needsLayout(100));
+        assertTrue(layout.needsLayout(50));
+
+        layout.setTags(Arrays.asList("aaaa", "bbbb"));
+        assertFalse(layout.hasSameTags(source));
+    }
+
+    @Test
+    public void idTags_comparesIdsAndMeasuresChanged() {
+        CountingTable table = new CountingTable();
+        assertTrue(layout.setTags(new int[]{1, 22, 333}, 3, table));
+        assertFalse(layout.setTags(new int[]{1, 22, 333}, 3, table));
+        layout.layout(100);
+        assertEquals(3, table.count);
+        assertEquals("22", layout.getText(1));
+        assertEquals(30f, layout.getX(2), 0);
+
+        assertTrue(layout.setTags(new int[]{1, 4444, 333}, 3, table));
+        layout.layout(100);
+        // 只测量变化的Tag
+        assertEquals(4, table.count);
+        assertEquals(50f, layout.getX(2), 0);
+
+        // 改为文字设置时，全部通过TagMeasurer重新测量
+        assertTrue(layout.setTags(Arrays.asList("1", "4444", "333")));
+        layout.layout(100);
+        assertEquals(4, table.count);
+        assertEquals(50f, layout.getX(2), 0);
+    }
+
+    /**
+     * ID的十进制文字就是Tag的文字
+     */
+    private static class CountingTable implements TagTable {
+
+        int count;
+
+        @Override
+        public String getText(int id) {
+            return String.valueOf(id);
+        }
+
+        @Override
+        public int measure(int id, TagMeasurer measurer) {
+            count++;
+            return measurer.measure(getText(id));
+        }
+    }
+
+    private static class CountingMeasurer implements TagMeasurer {
+
+        int count;
+
+        @Override
+        public int measure(String tag) {
+            count++;
+            return 50;
+        }
+    }
+
+    private static void assertSameLayout(TagLayout expected, TagLayout actual) {
+        assertEquals(expected.getTagCount(), actual.getTagCount());
+        assertEquals(expected.getLineCount(), actual.getLineCount());
+        assertEquals(expected.getResultWidth(), actual.getResultWidth());
+        for (int line = 0; line <= expected.getLineCount(); line++) {
+            assertEquals(expected.getLineStart(line), actual.getLineStart(line));
+        }
+        for (int i = 0; i < expected.getTagCount(); i++) {
+            assertEquals(expected.getText(i), actual.getText(i));
+            assertEquals(expected.getTagWidth(i), actual.getTagWidth(i));
+            assertEquals(expected.getLine(i), actual.getLine(i));
+            assertEquals(expected.getRow(i), actual.getRow(i));
+            assertEquals(expected.getX(i), actual.getX(i), 0);
+            assertEquals(expected.getY(i), actual.getY(i), 0);
+        }
+    }
+
+    private static List<String> randomTags(Random random, int count) {
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tags.add(randomTag(random));
+        }
+        return tags;
+    }
+
+    private static String randomTag(Random random) {
+        char[] chars = new char[1 + random.nextInt(8)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}